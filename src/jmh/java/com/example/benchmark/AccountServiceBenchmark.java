@@ -0,0 +1,61 @@
+package com.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Account;
+
+/**
+ * Benchmarks for the account paths hit by /register and /login.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceBenchmark {
+
+    private static final AtomicLong NEXT_USERNAME = new AtomicLong();
+
+    /**
+     * Registration of a fresh username: duplicate check plus insert.
+     */
+    @Benchmark
+    public Account addAccount(SeededApplication app){
+        Account account = new Account("new-user-" + NEXT_USERNAME.incrementAndGet(), "password");
+        app.accountService.addAccount(account);
+        return account;
+    }
+
+    /**
+     * Duplicate check for a username that is already taken.
+     */
+    @Benchmark
+    public boolean isDuplicateUsernameTaken(SeededApplication app){
+        return app.accountService.isDuplicateUsername(app.randomUsername());
+    }
+
+    /**
+     * Duplicate check for a username nobody has registered.
+     */
+    @Benchmark
+    public boolean isDuplicateUsernameFree(SeededApplication app){
+        return app.accountService.isDuplicateUsername("free-user-" + NEXT_USERNAME.incrementAndGet());
+    }
+
+    /**
+     * Credential check for a valid login.
+     */
+    @Benchmark
+    public boolean credentialsExist(SeededApplication app){
+        return app.accountService.credentialsExist(new Account(app.randomUsername(), "password"));
+    }
+}
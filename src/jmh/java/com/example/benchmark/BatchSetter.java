@@ -0,0 +1,34 @@
+package com.example.benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+/**
+ * A BatchPreparedStatementSetter built from a size and a lambda, used to seed benchmark data.
+ */
+class BatchSetter implements BatchPreparedStatementSetter {
+
+    interface RowSetter {
+        void set(PreparedStatement statement, int i) throws SQLException;
+    }
+
+    private final int size;
+    private final RowSetter rowSetter;
+
+    BatchSetter(int size, RowSetter rowSetter){
+        this.size = size;
+        this.rowSetter = rowSetter;
+    }
+
+    @Override
+    public void setValues(PreparedStatement statement, int i) throws SQLException {
+        rowSetter.set(statement, i);
+    }
+
+    @Override
+    public int getBatchSize() {
+        return size;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.example.dto.MessageView;
+import com.example.entity.Message;
+
+/**
+ * Loading every message from the database as one list: managed entities (the baseline)
+ * against the MessageView projection, plus GET /messages end to end minus the socket.
+ *
+ * Run these with -p accounts=1000 for 10k-element lists (10 messages per account).
+ * Add -prof gc to see the allocation per operation (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageListBenchmark {
+
+    @Benchmark
+    public List<Message> loadEntities(SeededApplication app){
+        return app.messageRepository.findAll(Sort.by("messageId"));
+    }
+
+    @Benchmark
+    public List<MessageView> loadViews(SeededApplication app){
+        return app.messageRepository.findPageAfter(0, Pageable.unpaged());
+    }
+
+    @Benchmark
+    public void writeAllMessages(SeededApplication app) throws IOException {
+        app.messageService.writeAllMessages(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.entity.Message;
+
+/**
+ * Benchmarks for the checks every POST /messages runs before saving, the cached lookup
+ * behind GET /messages/{messageId}, and the single-statement update behind PATCH /messages/{messageId}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageServiceBenchmark {
+
+    private static final String VALID_TEXT = "a perfectly ordinary message";
+
+    @Benchmark
+    public boolean meetsRequirements(SeededApplication app){
+        return app.messageService.meetsRequirements(VALID_TEXT);
+    }
+
+    @Benchmark
+    public boolean postedByCheck(SeededApplication app){
+        return app.messageService.postedByCheck(new Message(app.randomAccountId(), VALID_TEXT, 1669947792L));
+    }
+
+    @Benchmark
+    public Object getMessageById(SeededApplication app){
+        return app.messageService.getMessageById(app.randomMessageId());
+    }
+
+    @Benchmark
+    public int updateMessageText(SeededApplication app){
+        return app.messageService.updateMessageText(app.randomMessageId(), VALID_TEXT);
+    }
+}
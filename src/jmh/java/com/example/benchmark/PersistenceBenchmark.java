@@ -0,0 +1,175 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.SocialMediaApp;
+import com.example.dto.BatchMessageResult;
+import com.example.entity.Message;
+import com.example.service.MessageService;
+
+/**
+ * The in-memory database (the default) against the file-backed one of the "prod" profile.
+ *
+ * The "database" parameter picks the setup:
+ *  - mem: the default in-memory database, rebuilt from data.sql on every start
+ *  - file: the "prod" profile with its default write delay
+ *  - file-sync: the "prod" profile writing to the file on every commit (app.h2.write-delay-ms=0)
+ *
+ * startup measures SpringApplication.run until the application is ready, in-memory indexes
+ * included.  The file database already holds "accounts" x "messagesPerAccount" messages when it
+ * starts, while the in-memory one can only ever start with the test data, so the difference is
+ * the price of starting on real data.
+ *
+ * submitMessage and submitBatch measure MessageService writes, one message per transaction
+ * and BATCH_SIZE per transaction.
+ */
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * Command line arguments rather than SpringApplicationBuilder.properties(), since those
+     * are defaults that application-prod.properties would override.
+     */
+    private static String[] arguments(String database, Path directory){
+        List<String> arguments = new ArrayList<>(List.of("--logging.level.root=WARN", "--spring.jpa.open-in-view=false"));
+        if(!database.equals("mem")){
+            arguments.add("--spring.profiles.active=prod");
+            arguments.add("--app.h2.file=" + directory.resolve("socialmedia"));
+        }
+        if(database.equals("file-sync")){
+            arguments.add("--app.h2.write-delay-ms=0");
+        }
+        return arguments.toArray(new String[0]);
+    }
+
+    private static ConfigurableApplicationContext run(String[] arguments){
+        return new SpringApplicationBuilder(SocialMediaApp.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments);
+    }
+
+    @State(Scope.Benchmark)
+    public static class StoredData {
+        @Param({"mem", "file"})
+        public String database;
+
+        @Param({"10000"})
+        public int accounts;
+
+        @Param({"10"})
+        public int messagesPerAccount;
+
+        public Path directory;
+        public ConfigurableApplicationContext context;
+
+        @Setup(Level.Trial)
+        public void seed() throws IOException {
+            directory = Files.createTempDirectory("persistence-benchmark");
+            if(!database.equals("mem")){
+                try(ConfigurableApplicationContext seeding = run(arguments(database, directory))){
+                    SeededApplication.seed(seeding.getBean(JdbcTemplate.class), "bench-user-", accounts, messagesPerAccount);
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void stop(){
+            context.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public ConfigurableApplicationContext startup(StoredData data){
+        data.context = run(arguments(data.database, data.directory));
+        return data.context;
+    }
+
+    @State(Scope.Benchmark)
+    public static class RunningApplication {
+        @Param({"mem", "file", "file-sync"})
+        public String database;
+
+        public Path directory;
+        public ConfigurableApplicationContext context;
+        public MessageService messageService;
+        public int accountId;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            directory = Files.createTempDirectory("persistence-benchmark");
+            context = run(arguments(database, directory));
+            messageService = context.getBean(MessageService.class);
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            //Generated ids reach the test messages of data.sql (9996-9999) after ~10k inserts.
+            jdbcTemplate.update("delete from message where messageId between 9996 and 9999");
+            accountId = SeededApplication.seed(jdbcTemplate, "writer-", 1, 0)[0];
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            context.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+
+        public Message newMessage(){
+            return new Message(accountId, "persistence benchmark message", SeededApplication.FIRST_MESSAGE_TIME);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public Message submitMessage(RunningApplication app){
+        return app.messageService.submitMessage(app.newMessage());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<BatchMessageResult> submitBatch(RunningApplication app){
+        List<Message> batch = new ArrayList<>(BATCH_SIZE);
+        for(int i = 0; i < BATCH_SIZE; i++){
+            batch.add(app.newMessage());
+        }
+        return app.messageService.submitMessages(batch);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.example.dto.MessageView;
+import com.example.entity.Account;
+
+/**
+ * Benchmarks for the repository queries behind the endpoints, run straight against the
+ * repositories (no caches) at each seeded data size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Benchmark
+    public Account findByUsername(SeededApplication app){
+        return app.accountRepository.findByUsername(app.randomUsername());
+    }
+
+    @Benchmark
+    public Account findByUsernameAndPassword(SeededApplication app){
+        return app.accountRepository.findByUsernameAndPassword(app.randomUsername(), "password");
+    }
+
+    @Benchmark
+    public boolean accountExistsById(SeededApplication app){
+        return app.accountRepository.existsById(app.randomAccountId());
+    }
+
+    @Benchmark
+    public Set<Integer> findExistingAccountIds(SeededApplication app){
+        return app.accountRepository.findExistingIds(List.of(app.randomAccountId(), app.randomAccountId(), -1));
+    }
+
+    @Benchmark
+    public Object findMessageById(SeededApplication app){
+        return app.messageRepository.findById(app.randomMessageId());
+    }
+
+    /**
+     * A whole timeline, as GET /accounts/{accountId}/messages returns it when no limit is given.
+     */
+    @Benchmark
+    public List<MessageView> fullTimeline(SeededApplication app){
+        return app.messageRepository.findTimeline(app.randomAccountId(), Pageable.unpaged());
+    }
+
+    @Benchmark
+    public List<MessageView> timelineFirstPage(SeededApplication app){
+        return app.messageRepository.findTimeline(app.randomAccountId(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<MessageView> keysetPage(SeededApplication app){
+        return app.messageRepository.findPageAfter(app.randomMessageId(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<MessageView> timeWindowPage(SeededApplication app){
+        long since = app.randomTimePostedEpoch();
+        return app.messageRepository.findBetween(since, since + 3600, PageRequest.of(0, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<MessageView> accountTimeWindowPage(SeededApplication app){
+        long since = app.randomTimePostedEpoch();
+        return app.messageRepository.findTimelineBetween(app.randomAccountId(), since, since + 3600 * 24, PageRequest.of(0, PAGE_SIZE));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.search.MessageSearchIndex;
+
+/**
+ * GET /messages/search without the socket: the in-memory inverted index against the
+ * "like '%...%'" scan it replaces.
+ *
+ * The seeded messages read "benchmark message N", so searching for "message N" matches one
+ * message, while "benchmark" matches all of them and measures ranking the whole table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static String randomQuery(SeededApplication app){
+        return "message " + ThreadLocalRandom.current().nextLong((long) app.accounts * app.messagesPerAccount);
+    }
+
+    @Benchmark
+    public MessageSearchIndex.SearchResult indexRareTerm(SeededApplication app){
+        return app.messageSearchIndex.search(randomQuery(app), 0, 20);
+    }
+
+    @Benchmark
+    public MessageSearchIndex.SearchResult indexCommonTerm(SeededApplication app){
+        return app.messageSearchIndex.search("benchmark", 0, 20);
+    }
+
+    @Benchmark
+    public List<Integer> likeScan(SeededApplication app){
+        return app.jdbcTemplate.queryForList(
+                "select messageId from message where lower(messageText) like ? limit 20", Integer.class, "%" + randomQuery(app) + "%");
+    }
+}
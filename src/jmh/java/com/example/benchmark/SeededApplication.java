@@ -0,0 +1,145 @@
+package com.example.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.SocialMediaApp;
+import com.example.cache.AccountIdSet;
+import com.example.cache.UsernameIndex;
+import com.example.repository.AccountRepository;
+import com.example.repository.MessageRepository;
+import com.example.search.MessageSearchIndex;
+import com.example.service.AccountService;
+import com.example.service.MessageService;
+
+/**
+ * Shared benchmark state: a running (non-web) instance of the application whose in-memory
+ * database has been seeded with "accounts" accounts and "messagesPerAccount" messages each.
+ *
+ * The data sizes are JMH parameters, so every benchmark that uses this state is measured at
+ * each size.  Override them from the command line, e.g. -p accounts=1000000.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    /**
+     * The timePostedEpoch of the first seeded message; every following one is a second later.
+     */
+    public static final long FIRST_MESSAGE_TIME = 1669947792L;
+
+    @Param({"1000", "100000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int messagesPerAccount;
+
+    public ConfigurableApplicationContext context;
+
+    /**
+     * The seeded account ids.  Ids come from the account_seq column default, so they are
+     * not contiguous; benchmarks pick from this array instead of guessing.
+     */
+    public int[] accountIds;
+
+    /**
+     * The seeded message ids, in ascending order.
+     */
+    public int[] messageIds;
+
+    //The beans the benchmarks call, looked up once here so the lookup isn't part of what they measure
+    public MessageService messageService;
+    public AccountService accountService;
+    public MessageRepository messageRepository;
+    public AccountRepository accountRepository;
+    public MessageSearchIndex messageSearchIndex;
+    public JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void start(){
+        context = new SpringApplicationBuilder(SocialMediaApp.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN", "spring.jpa.open-in-view=false")
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        messageService = context.getBean(MessageService.class);
+        accountService = context.getBean(AccountService.class);
+        messageRepository = context.getBean(MessageRepository.class);
+        accountRepository = context.getBean(AccountRepository.class);
+        messageSearchIndex = context.getBean(MessageSearchIndex.class);
+        accountIds = seed(jdbcTemplate, "bench-user-", accounts, messagesPerAccount);
+        messageIds = jdbcTemplate.queryForList("select messageId from message order by messageId", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+
+        //The in-memory indexes were warmed before seeding, so reload them with the seeded rows.
+        context.getBean(UsernameIndex.class).warmUp();
+        context.getBean(AccountIdSet.class).warmUp();
+        messageSearchIndex.warmUp();
+    }
+
+    /**
+     * Inserts "accounts" accounts named prefix + n, and "messagesPerAccount" messages for each,
+     * posted a second apart from FIRST_MESSAGE_TIME on.
+     * @return - the ids of the inserted accounts, in ascending order
+     */
+    public static int[] seed(JdbcTemplate jdbcTemplate, String usernamePrefix, int accounts, int messagesPerAccount){
+        for(int from = 0; from < accounts; from += SEED_BATCH_SIZE){
+            int to = Math.min(accounts, from + SEED_BATCH_SIZE);
+            int offset = from;
+            jdbcTemplate.batchUpdate("insert into account (username, password) values (?, ?)", new BatchSetter(to - from,
+                    (statement, i) -> {
+                        statement.setString(1, usernamePrefix + (offset + i));
+                        statement.setString(2, "password");
+                    }));
+        }
+        List<Integer> ids = jdbcTemplate.queryForList("select accountId from account where username like ? order by accountId", Integer.class, usernamePrefix + "%");
+        int[] accountIds = ids.stream().mapToInt(Integer::intValue).toArray();
+
+        long totalMessages = (long) accounts * messagesPerAccount;
+        for(long from = 0; from < totalMessages; from += SEED_BATCH_SIZE){
+            int count = (int) Math.min(SEED_BATCH_SIZE, totalMessages - from);
+            long offset = from;
+            jdbcTemplate.batchUpdate("insert into message (postedBy, messageText, timePostedEpoch) values (?, ?, ?)", new BatchSetter(count,
+                    (statement, i) -> {
+                        long n = offset + i;
+                        statement.setInt(1, accountIds[(int) (n % accountIds.length)]);
+                        statement.setString(2, "benchmark message " + n);
+                        statement.setLong(3, FIRST_MESSAGE_TIME + n);
+                    }));
+        }
+        return accountIds;
+    }
+
+    @TearDown(Level.Trial)
+    public void stop(){
+        context.close();
+    }
+
+    public int randomAccountId(){
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    public String randomUsername(){
+        return "bench-user-" + ThreadLocalRandom.current().nextInt(accountIds.length);
+    }
+
+    public int randomMessageId(){
+        return messageIds[ThreadLocalRandom.current().nextInt(messageIds.length)];
+    }
+
+    public long randomTimePostedEpoch(){
+        return FIRST_MESSAGE_TIME + ThreadLocalRandom.current().nextInt(messageIds.length);
+    }
+}
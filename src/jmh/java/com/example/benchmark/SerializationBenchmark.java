@@ -0,0 +1,64 @@
+package com.example.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.dto.MessageView;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serializing a message list response without the database: Jackson's reflective
+ * serialization of Message entities (the baseline) against MessageViewSerializer.
+ * Both produce the same JSON.  Add -prof gc to see the allocation per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10000"})
+    public int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Message> messages;
+    private List<MessageView> views;
+
+    @Setup
+    public void createMessages(){
+        messages = new ArrayList<>(size);
+        views = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            String text = "benchmark message " + i;
+            messages.add(new Message(i + 1, 9999, text, 1669947792L + i));
+            views.add(new MessageView(i + 1, 9999, text, 1669947792L + i));
+        }
+    }
+
+    @Benchmark
+    public byte[] reflectiveEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(messages);
+    }
+
+    @Benchmark
+    public byte[] handWrittenViews() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(views);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.loadtest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.SocialMediaApp;
+import com.example.cache.UsernameIndex;
+
+/**
+ * The load test that runs in the verify phase of the loadtest profile:
+ *     mvn -Ploadtest verify
+ *
+ * It starts the application, seeds its in-memory database at scale, drives the configured
+ * request mix against it over HTTP and fails the build if the latency, throughput or error
+ * thresholds are not met.  The report is printed and written to target/loadtest-report.json.
+ * See LoadTestConfig for the settings and the loadtest profile in pom.xml for their defaults.
+ */
+public class EndpointLoadIT {
+    ConfigurableApplicationContext app;
+    LoadTestConfig config;
+
+    /**
+     * Before the run, start the Spring app and seed the database.
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        config = LoadTestConfig.fromSystemProperties();
+        List<String> args = new ArrayList<>();
+        args.add("--server.port=" + config.getPort());
+        args.add("--logging.level.root=WARN");
+        if(!config.getSpringProfiles().isBlank()){
+            args.add("--spring.profiles.active=" + config.getSpringProfiles());
+        }
+        if(!config.getAppArgs().isBlank()){
+            for(String property : config.getAppArgs().trim().split("\\s+")){
+                args.add("--" + property);
+            }
+        }
+        app = SpringApplication.run(SocialMediaApp.class, args.toArray(new String[0]));
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    @Test
+    public void endpointMixMeetsThresholds() throws Exception {
+        LoadTestData data = LoadTestData.seed(app.getBean(JdbcTemplate.class), config.getAccounts(), config.getMessagesPerAccount());
+        //The username index was warmed before seeding, so reload it with the seeded usernames.
+        app.getBean(UsernameIndex.class).warmUp();
+        System.out.println("Seeded " + data.accountCount() + " accounts and " + data.messageCount() + " messages");
+        System.out.println("Running " + config);
+
+        LoadReport report = new LoadGenerator(config, data).run();
+        System.out.print(report.toTable());
+        report.writeJson(new File("target/loadtest-report.json"));
+
+        List<String> violations = config.getThresholds().violations(report);
+        Assertions.assertTrue(violations.isEmpty(), "Load-test thresholds not met: " + violations);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Collects the latency of every recorded request sent by one load-generator thread.
+ * Each thread has its own recorder, so recording never contends; the recorders are merged
+ * into a LoadReport once the run is over.
+ *
+ * Latencies are kept exactly (in nanoseconds) rather than bucketed, so the reported
+ * percentiles are true order statistics.  At a few thousand requests per second over a
+ * run of a minute or so that is only a few megabytes.
+ */
+class LatencyRecorder {
+
+    private final Map<Operation, Samples> samples = new EnumMap<>(Operation.class);
+
+    void record(Operation operation, long latencyNanos, boolean error){
+        samples.computeIfAbsent(operation, o -> new Samples()).add(latencyNanos, error);
+    }
+
+    Map<Operation, Samples> samples(){
+        return samples;
+    }
+
+    /**
+     * A growable array of latencies plus an error count.
+     */
+    static class Samples {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        void add(long latencyNanos, boolean error){
+            if(count == latencies.length){
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if(error){
+                errors++;
+            }
+        }
+
+        void addAll(Samples other){
+            if(count + other.count > latencies.length){
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+        }
+
+        LatencySummary summarize(){
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new LatencySummary(sorted, errors);
+        }
+    }
+}
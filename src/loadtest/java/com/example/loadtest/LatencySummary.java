@@ -0,0 +1,87 @@
+package com.example.loadtest;
+
+/**
+ * Latency percentiles, in milliseconds, and error counts for a set of requests.
+ * The getters are what ends up in the JSON report.
+ */
+public class LatencySummary {
+
+    private final long count;
+    private final long errors;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    /**
+     * @param sortedNanos - every latency in the set, in nanoseconds, sorted ascending
+     * @param errors - how many of those requests failed
+     */
+    LatencySummary(long[] sortedNanos, long errors){
+        this.count = sortedNanos.length;
+        this.errors = errors;
+        long total = 0;
+        for(long latency : sortedNanos){
+            total += latency;
+        }
+        this.meanMillis = count == 0 ? 0 : toMillis(total) / count;
+        this.p50Millis = percentile(sortedNanos, 50);
+        this.p95Millis = percentile(sortedNanos, 95);
+        this.p99Millis = percentile(sortedNanos, 99);
+        this.p999Millis = percentile(sortedNanos, 99.9);
+        this.maxMillis = count == 0 ? 0 : toMillis(sortedNanos[sortedNanos.length - 1]);
+    }
+
+    /**
+     * Nearest-rank percentile: the smallest latency that at least the given percentage of requests didn't exceed.
+     */
+    private static double percentile(long[] sortedNanos, double percent){
+        if(sortedNanos.length == 0){
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100 * sortedNanos.length);
+        return toMillis(sortedNanos[Math.max(0, rank - 1)]);
+    }
+
+    private static double toMillis(long nanos){
+        return nanos / 1_000_000.0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getErrorRate() {
+        return count == 0 ? 0 : (double) errors / count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+}
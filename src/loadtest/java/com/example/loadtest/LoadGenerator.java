@@ -0,0 +1,142 @@
+package com.example.loadtest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the configured mix of requests from a fixed number of client threads, first for the
+ * warmup period (not recorded) and then for the measured duration.
+ *
+ * Without a target rate every thread sends its next request as soon as the previous one
+ * returns (a closed loop), which measures capacity.  With loadtest.rate set, each thread sends
+ * on a fixed schedule instead and latency is measured from when the request was due rather than
+ * from when it was actually sent.  That way a stall in the application shows up in the
+ * percentiles for every request it delayed, not just the one that was in flight.
+ */
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final LoadTestConfig config;
+    private final LoadTestData data;
+    private final HttpClient client;
+    private final Operation[] operations; //the operations in the mix
+    private final int[] cumulativeWeights; //running total of the mix weights, used to pick the next operation
+
+    public LoadGenerator(LoadTestConfig config, LoadTestData data){
+        this.config = config;
+        this.data = data;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+        Map<Operation, Integer> mix = config.getMix();
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for(int i = 0; i < operations.length; i++){
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        Operation.target(config.getPort());
+    }
+
+    public LoadReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + config.getWarmup().toNanos();
+        long end = recordFrom + config.getDuration().toNanos();
+        //Spacing between the scheduled sends of one thread, or 0 to send back to back.
+        long intervalNanos = config.getTargetRate() > 0 ? (long) (config.getThreads() * 1_000_000_000L / config.getTargetRate()) : 0;
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for(int i = 0; i < config.getThreads(); i++){
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            //Stagger the threads' schedules so a fixed rate doesn't arrive in bursts.
+            long firstSend = start + (intervalNanos * i) / config.getThreads();
+            Thread worker = new Thread(() -> drive(recorder, firstSend, intervalNanos, recordFrom, end), "load-generator-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        LockSupport.parkNanos(recordFrom - System.nanoTime());
+        long cpuAtStart = processCpuNanos();
+        for(Thread worker : workers){
+            worker.join();
+        }
+        long cpuNanos = processCpuNanos() - cpuAtStart;
+        return LoadReport.merge(config.toString(), config.getDuration().toNanos() / 1_000_000_000.0, cpuNanos, recorders);
+    }
+
+    private void drive(LatencyRecorder recorder, long firstSend, long intervalNanos, long recordFrom, long end){
+        long due = firstSend;
+        while(true){
+            long now = System.nanoTime();
+            if(intervalNanos > 0){
+                while(now < due){
+                    LockSupport.parkNanos(due - now);
+                    now = System.nanoTime();
+                }
+            }
+            else{
+                due = now;
+            }
+            if(due >= end){
+                return;
+            }
+            Operation operation = nextOperation();
+            boolean error = !send(operation);
+            if(due >= recordFrom){
+                recorder.record(operation, System.nanoTime() - due, error);
+            }
+            due += intervalNanos;
+        }
+    }
+
+    /**
+     * @return - the CPU time used by this JVM so far, or -1 if the JVM can't tell.  The application
+     * and the load generator share the JVM, so this covers both.
+     */
+    private static long processCpuNanos(){
+        if(ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os){
+            return os.getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    private Operation nextOperation(){
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for(int i = 0; i < cumulativeWeights.length; i++){
+            if(pick < cumulativeWeights[i]){
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * @return - true if the application answered with 200.
+     */
+    private boolean send(Operation operation){
+        HttpRequest request = operation.request(data).timeout(REQUEST_TIMEOUT).build();
+        try{
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        }
+        catch(IOException e){
+            return false;
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
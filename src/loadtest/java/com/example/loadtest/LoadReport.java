@@ -0,0 +1,100 @@
+package com.example.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The outcome of a load-test run: latency per operation and overall, plus throughput.
+ * It can be printed as a table for people and written as JSON for diffing between releases.
+ */
+public class LoadReport {
+
+    private final String config; //the configuration the run used
+    private final double durationSeconds; //how long recorded load was sent for
+    private final long cpuNanos; //process CPU time used while recorded load was sent, or negative if unknown
+    private final LatencySummary overall;
+    private final Map<Operation, LatencySummary> operations;
+
+    LoadReport(String config, double durationSeconds, long cpuNanos, LatencySummary overall, Map<Operation, LatencySummary> operations){
+        this.config = config;
+        this.durationSeconds = durationSeconds;
+        this.cpuNanos = cpuNanos;
+        this.overall = overall;
+        this.operations = operations;
+    }
+
+    /**
+     * Merges what every load-generator thread recorded.
+     */
+    static LoadReport merge(String config, double durationSeconds, long cpuNanos, List<LatencyRecorder> recorders){
+        Map<Operation, LatencyRecorder.Samples> merged = new EnumMap<>(Operation.class);
+        LatencyRecorder.Samples all = new LatencyRecorder.Samples();
+        for(LatencyRecorder recorder : recorders){
+            recorder.samples().forEach((operation, samples) -> {
+                merged.computeIfAbsent(operation, o -> new LatencyRecorder.Samples()).addAll(samples);
+                all.addAll(samples);
+            });
+        }
+        Map<Operation, LatencySummary> operations = new EnumMap<>(Operation.class);
+        merged.forEach((operation, samples) -> operations.put(operation, samples.summarize()));
+        return new LoadReport(config, durationSeconds, cpuNanos, all.summarize(), operations);
+    }
+
+    public String getConfig() {
+        return config;
+    }
+
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * @return - completed requests per second, failed ones included.
+     */
+    public double getThroughput() {
+        return durationSeconds == 0 ? 0 : overall.getCount() / durationSeconds;
+    }
+
+    /**
+     * @return - milliseconds of process CPU per completed request, or -1 if unknown.  The load
+     * generator runs in the same JVM as the application, so its own share is included.
+     */
+    public double getCpuMillisPerRequest() {
+        return cpuNanos < 0 || overall.getCount() == 0 ? -1 : cpuNanos / 1_000_000.0 / overall.getCount();
+    }
+
+    public LatencySummary getOverall() {
+        return overall;
+    }
+
+    public Map<Operation, LatencySummary> getOperations() {
+        return operations;
+    }
+
+    public String toTable(){
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-20s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "errors", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms"));
+        operations.forEach((operation, summary) -> appendRow(table, operation.name(), summary));
+        appendRow(table, "all", overall);
+        table.append(String.format("throughput: %.1f req/s over %.1f s, %.3f ms CPU per request%n",
+                getThroughput(), durationSeconds, getCpuMillisPerRequest()));
+        return table.toString();
+    }
+
+    private static void appendRow(StringBuilder table, String name, LatencySummary summary){
+        table.append(String.format("%-20s %10d %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n", name, summary.getCount(), summary.getErrors(),
+                summary.getP50Millis(), summary.getP95Millis(), summary.getP99Millis(), summary.getP999Millis(), summary.getMaxMillis()));
+    }
+
+    public void writeJson(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, this);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The knobs of a load-test run, read from system properties so they can be set from the Maven
+ * command line, e.g. mvn -Ploadtest verify -Dloadtest.threads=64 -Dloadtest.mix=getMessage=80,postMessage=20
+ *
+ * Defaults live in the loadtest profile of pom.xml; the values here are only used when the
+ * harness is started some other way (for example straight from an IDE).
+ */
+public class LoadTestConfig {
+
+    private final int port; //port the application listens on
+    private final String springProfiles; //extra Spring profiles to run the application with, e.g. "virtual"
+    private final String appArgs; //extra application properties, space separated, e.g. "app.cache.message-list.max-bytes=0"
+    private final int accounts; //accounts seeded before the run
+    private final int messagesPerAccount; //messages seeded per account
+    private final int threads; //concurrent client threads
+    private final double targetRate; //requests per second across all threads, or 0 to send as fast as possible
+    private final Duration warmup; //time spent sending load before anything is recorded
+    private final Duration duration; //time spent sending recorded load
+    private final Map<Operation, Integer> mix; //relative weight of every operation in the run
+    private final LoadThresholds thresholds; //what the run has to meet to pass
+
+    public LoadTestConfig(int port, String springProfiles, String appArgs, int accounts, int messagesPerAccount, int threads, double targetRate,
+                          Duration warmup, Duration duration, Map<Operation, Integer> mix, LoadThresholds thresholds){
+        this.port = port;
+        this.springProfiles = springProfiles;
+        this.appArgs = appArgs;
+        this.accounts = accounts;
+        this.messagesPerAccount = messagesPerAccount;
+        this.threads = threads;
+        this.targetRate = targetRate;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = mix;
+        this.thresholds = thresholds;
+    }
+
+    public static LoadTestConfig fromSystemProperties(){
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.port", 8080),
+                System.getProperty("loadtest.spring-profiles", ""),
+                System.getProperty("loadtest.app-args", ""),
+                Integer.getInteger("loadtest.accounts", 10000),
+                Integer.getInteger("loadtest.messages-per-account", 10),
+                Integer.getInteger("loadtest.threads", 16),
+                Double.parseDouble(System.getProperty("loadtest.rate", "0")),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5)),
+                Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 20)),
+                parseMix(System.getProperty("loadtest.mix", "getMessage=90,postMessage=5,login=5")),
+                LoadThresholds.fromSystemProperties());
+    }
+
+    /**
+     * Parses a mix such as "getMessage=90,postMessage=5,login=5" into operation weights.
+     * Weights are relative, so they don't have to add up to 100.
+     */
+    static Map<Operation, Integer> parseMix(String mix){
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for(String entry : mix.split(",")){
+            if(entry.isBlank()){
+                continue;
+            }
+            String[] parts = entry.trim().split("=");
+            if(parts.length != 2){
+                throw new IllegalArgumentException("Mix entries look like operation=weight, got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if(weight < 0){
+                throw new IllegalArgumentException("Mix weights can't be negative: " + entry);
+            }
+            if(weight > 0){
+                weights.put(Operation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if(weights.isEmpty()){
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight");
+        }
+        return weights;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getSpringProfiles() {
+        return springProfiles;
+    }
+
+    public String getAppArgs() {
+        return appArgs;
+    }
+
+    public int getAccounts() {
+        return accounts;
+    }
+
+    public int getMessagesPerAccount() {
+        return messagesPerAccount;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public LoadThresholds getThresholds() {
+        return thresholds;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestConfig{" +
+                "port=" + port +
+                ", springProfiles='" + springProfiles + '\'' +
+                ", appArgs='" + appArgs + '\'' +
+                ", accounts=" + accounts +
+                ", messagesPerAccount=" + messagesPerAccount +
+                ", threads=" + threads +
+                ", targetRate=" + targetRate +
+                ", warmup=" + warmup +
+                ", duration=" + duration +
+                ", mix=" + mix +
+                ", thresholds=" + thresholds +
+                '}';
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.loadtest;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Seeds the application's in-memory database at scale before a run, and hands the load
+ * generator existing ids and credentials to aim its requests at.
+ *
+ * Rows are inserted straight through JDBC in batches, without explicit ids, so the sequences
+ * behind the id columns stay in step with what the application itself inserts.
+ *
+ * Deletes get messages of their own, seeded apart from the rest (one per account), so no other
+ * request is ever aimed at a message that a delete has removed.
+ */
+public class LoadTestData {
+
+    static final String PASSWORD = "password";
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final String MESSAGE_TEXT = "load test message ";
+    private static final String DELETABLE_TEXT = "load test deletable message ";
+
+    private final int[] accountIds; //seeded account ids, in the same order as their usernames
+    private final int[] messageIds; //seeded message ids, never deleted
+    private final int[] deletableMessageIds; //seeded message ids only deletes are aimed at
+    private final AtomicInteger deletions = new AtomicInteger(); //next entry of deletableMessageIds to delete
+    private final AtomicLong registrations = new AtomicLong(); //used to make registered usernames unique
+
+    private LoadTestData(int[] accountIds, int[] messageIds, int[] deletableMessageIds){
+        this.accountIds = accountIds;
+        this.messageIds = messageIds;
+        this.deletableMessageIds = deletableMessageIds;
+    }
+
+    public static LoadTestData seed(JdbcTemplate jdbcTemplate, int accounts, int messagesPerAccount){
+        for(int from = 0; from < accounts; from += SEED_BATCH_SIZE){
+            int offset = from;
+            int count = Math.min(SEED_BATCH_SIZE, accounts - from);
+            jdbcTemplate.batchUpdate("insert into account (username, password) values (?, ?)", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    statement.setString(1, usernameOf(offset + i));
+                    statement.setString(2, PASSWORD);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+        List<Integer> accountIdList = jdbcTemplate.queryForList(
+                "select accountId from account where username like 'load-user-%' order by accountId", Integer.class);
+        int[] accountIds = accountIdList.stream().mapToInt(Integer::intValue).toArray();
+
+        insertMessages(jdbcTemplate, accountIds, (long) accounts * messagesPerAccount, MESSAGE_TEXT);
+        insertMessages(jdbcTemplate, accountIds, accounts, DELETABLE_TEXT);
+        int[] messageIds = jdbcTemplate.queryForList("select messageId from message where messageText not like ? order by messageId",
+                Integer.class, DELETABLE_TEXT + "%").stream().mapToInt(Integer::intValue).toArray();
+        int[] deletableMessageIds = jdbcTemplate.queryForList("select messageId from message where messageText like ? order by messageId",
+                Integer.class, DELETABLE_TEXT + "%").stream().mapToInt(Integer::intValue).toArray();
+        return new LoadTestData(accountIds, messageIds, deletableMessageIds);
+    }
+
+    /**
+     * Inserts "totalMessages" messages named text + n, spread over the accounts in turn.
+     */
+    private static void insertMessages(JdbcTemplate jdbcTemplate, int[] accountIds, long totalMessages, String text){
+        for(long from = 0; from < totalMessages; from += SEED_BATCH_SIZE){
+            long offset = from;
+            int count = (int) Math.min(SEED_BATCH_SIZE, totalMessages - from);
+            jdbcTemplate.batchUpdate("insert into message (postedBy, messageText, timePostedEpoch) values (?, ?, ?)", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    long n = offset + i;
+                    statement.setInt(1, accountIds[(int) (n % accountIds.length)]);
+                    statement.setString(2, text + n);
+                    statement.setLong(3, 1669947792L + n);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+    }
+
+    /**
+     * Seeded usernames are numbered in insertion order, which is also accountId order.
+     */
+    static String usernameOf(int index){
+        return "load-user-" + index;
+    }
+
+    public int randomAccountId(){
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    public String randomUsername(){
+        return usernameOf(ThreadLocalRandom.current().nextInt(accountIds.length));
+    }
+
+    public int randomMessageId(){
+        return messageIds[ThreadLocalRandom.current().nextInt(messageIds.length)];
+    }
+
+    /**
+     * @return - the next message for a delete to remove.  Each is handed out once; after the
+     * last one they come round again, and deleting a message that is already gone is still a 200.
+     */
+    public int nextDeletableMessageId(){
+        return deletableMessageIds[Math.floorMod(deletions.getAndIncrement(), deletableMessageIds.length)];
+    }
+
+    /**
+     * @return - a username that hasn't been seeded or registered yet.
+     */
+    public String newUsername(){
+        return "load-new-user-" + registrations.incrementAndGet();
+    }
+
+    public int accountCount(){
+        return accountIds.length;
+    }
+
+    public int messageCount(){
+        return messageIds.length;
+    }
+}
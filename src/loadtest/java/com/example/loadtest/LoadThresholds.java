@@ -0,0 +1,81 @@
+package com.example.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The service level objectives a load-test run is held to.  The thresholds apply to the
+ * latency of all recorded requests together, whatever their operation.
+ * A latency or throughput threshold of 0 (or less) is not checked; the error rate always is.
+ */
+public class LoadThresholds {
+
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double minThroughput; //requests per second
+    private final double maxErrorRate; //fraction of requests that may fail, e.g. 0.001
+
+    public LoadThresholds(double p50Millis, double p95Millis, double p99Millis, double p999Millis,
+                          double minThroughput, double maxErrorRate){
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.minThroughput = minThroughput;
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    public static LoadThresholds fromSystemProperties(){
+        return new LoadThresholds(
+                doubleProperty("loadtest.slo.p50-ms", 10),
+                doubleProperty("loadtest.slo.p95-ms", 25),
+                doubleProperty("loadtest.slo.p99-ms", 50),
+                doubleProperty("loadtest.slo.p999-ms", 200),
+                doubleProperty("loadtest.slo.min-throughput", 200),
+                doubleProperty("loadtest.slo.max-error-rate", 0.001));
+    }
+
+    private static double doubleProperty(String name, double defaultValue){
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * @return - a description of every threshold the report breaks, or an empty list if it meets them all.
+     */
+    public List<String> violations(LoadReport report){
+        LatencySummary overall = report.getOverall();
+        List<String> violations = new ArrayList<>();
+        checkAtMost(violations, "p50 latency (ms)", overall.getP50Millis(), p50Millis);
+        checkAtMost(violations, "p95 latency (ms)", overall.getP95Millis(), p95Millis);
+        checkAtMost(violations, "p99 latency (ms)", overall.getP99Millis(), p99Millis);
+        checkAtMost(violations, "p99.9 latency (ms)", overall.getP999Millis(), p999Millis);
+        if(overall.getErrorRate() > maxErrorRate){
+            violations.add(String.format("error rate was %.5f, the limit is %.5f", overall.getErrorRate(), maxErrorRate));
+        }
+        if(minThroughput > 0 && report.getThroughput() < minThroughput){
+            violations.add(String.format("throughput (req/s) was %.1f, the minimum is %.1f", report.getThroughput(), minThroughput));
+        }
+        return violations;
+    }
+
+    private static void checkAtMost(List<String> violations, String name, double actual, double limit){
+        if(limit > 0 && actual > limit){
+            violations.add(String.format("%s was %.3f, the limit is %.3f", name, actual, limit));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LoadThresholds{" +
+                "p50Millis=" + p50Millis +
+                ", p95Millis=" + p95Millis +
+                ", p99Millis=" + p99Millis +
+                ", p999Millis=" + p999Millis +
+                ", minThroughput=" + minThroughput +
+                ", maxErrorRate=" + maxErrorRate +
+                '}';
+    }
+}
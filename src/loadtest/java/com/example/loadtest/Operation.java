@@ -0,0 +1,129 @@
+package com.example.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Every request the load generator knows how to send, one per endpoint of SocialMediaController.
+ * The name of each operation is what the loadtest.mix property refers to.
+ *
+ * Requests only ever target rows that exist (or are about to), so a healthy application
+ * answers every one of them with 200 and anything else counts as an error.  Deletes are the
+ * exception that proves it: they remove messages set aside for them (see LoadTestData), which
+ * no other request reads or updates, and deleting one that is already gone is a 200 as well.
+ */
+public enum Operation {
+    register {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return post("/register", "{\"username\":\"" + data.newUsername() + "\",\"password\":\"password\"}");
+        }
+    },
+    login {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return post("/login", "{\"username\":\"" + data.randomUsername() + "\",\"password\":\"" + LoadTestData.PASSWORD + "\"}");
+        }
+    },
+    postMessage {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return post("/messages", messageJson(data));
+        }
+    },
+    postMessageBatch {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            StringBuilder json = new StringBuilder("[");
+            for(int i = 0; i < BATCH_SIZE; i++){
+                if(i > 0){
+                    json.append(',');
+                }
+                json.append(messageJson(data));
+            }
+            return post("/messages/batch", json.append(']').toString());
+        }
+    },
+    getAllMessages {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/messages")).GET();
+        }
+    },
+    getAllMessagesGzip {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/messages")).header("Accept-Encoding", "gzip").GET();
+        }
+    },
+    getMessagePage {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/messages?after=" + data.randomMessageId() + "&limit=" + PAGE_SIZE)).GET();
+        }
+    },
+    getMessage {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/messages/" + data.randomMessageId())).GET();
+        }
+    },
+    updateMessage {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/messages/" + data.randomMessageId()))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"updated " + System.nanoTime() + "\"}"));
+        }
+    },
+    deleteMessage {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/messages/" + data.nextDeletableMessageId())).DELETE();
+        }
+    },
+    getAccountMessages {
+        @Override
+        HttpRequest.Builder request(LoadTestData data){
+            return HttpRequest.newBuilder().uri(uri("/accounts/" + data.randomAccountId() + "/messages?limit=" + PAGE_SIZE)).GET();
+        }
+    };
+
+    private static final int BATCH_SIZE = 20; //messages per POST /messages/batch
+    private static final int PAGE_SIZE = 20; //messages per page for the paged reads
+    private static volatile String baseUrl = "http://localhost:8080";
+
+    /**
+     * Builds the next request of this kind.  The URI is relative to the base URL set with target().
+     */
+    abstract HttpRequest.Builder request(LoadTestData data);
+
+    static void target(int port){
+        baseUrl = "http://localhost:" + port;
+    }
+
+    static Operation fromName(String name){
+        for(Operation operation : values()){
+            if(operation.name().equalsIgnoreCase(name)){
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load-test operation: " + name);
+    }
+
+    private static URI uri(String path){
+        return URI.create(baseUrl + path);
+    }
+
+    private static HttpRequest.Builder post(String path, String json){
+        return HttpRequest.newBuilder().uri(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static String messageJson(LoadTestData data){
+        return "{\"postedBy\":" + data.randomAccountId() + ",\"messageText\":\"load test message "
+                + ThreadLocalRandom.current().nextInt(1_000_000) + "\",\"timePostedEpoch\":" + System.currentTimeMillis() / 1000 + "}";
+    }
+}
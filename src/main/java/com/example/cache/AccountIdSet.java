@@ -0,0 +1,211 @@
+package com.example.cache;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.repository.AccountRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * This class is an in-memory set of every accountId in the account table, so that posting a
+ * message doesn't need a database round-trip just to learn that its postedBy exists.
+ *
+ * The ids are kept in a plain int[] hash table with open addressing (linear probing), rather
+ * than a Set<Integer>: one 4-byte slot per entry and no boxed Integers or hash nodes.  The
+ * table doubles once it is 3/4 full, so it runs between 3/8 and 3/4 full.  At 10 million
+ * accounts that is 2^24 slots, 64 MiB (a HashSet<Integer> would take over 500 MiB), plus
+ * another 32 MiB for the old table while it is doubling.  0 marks an empty slot; account ids
+ * start at 1, and 0 is tracked separately anyway.
+ *
+ * Lookups are lock-free: they read under an optimistic StampedLock stamp and only take the
+ * read lock if an insert ran at the same time.  Inserts take the write lock.
+ *
+ * The set is loaded from the database once the application has started and is kept up to
+ * date by AccountService whenever an account is inserted.  Accounts are never deleted, so
+ * an id in the set is known to exist.  An id that isn't in the set might still have been
+ * added some other way (or before the set was loaded), so callers should check the
+ * database before rejecting it.
+ */
+@Component
+public class AccountIdSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final AccountRepository accountRepository;
+    private final StampedLock lock = new StampedLock();
+    private int[] table; //guarded by lock; 0 is an empty slot
+    private int size; //guarded by lock
+    private boolean containsZero; //guarded by lock
+
+    public AccountIdSet(AccountRepository accountRepository, MeterRegistry meterRegistry,
+                        @Value("${app.cache.account-ids.expected-size}") int expectedSize){
+        this.accountRepository = accountRepository;
+        this.table = new int[capacityFor(expectedSize)];
+        Gauge.builder("cache.account_ids.size", this, AccountIdSet::size)
+                .description("Account ids held in the in-memory account-existence set")
+                .register(meterRegistry);
+        Gauge.builder("cache.account_ids.bytes", this, set -> 4.0 * set.capacity())
+                .description("Memory taken by the account-existence set's table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads every existing accountId once the application is up.  Accounts registered while
+     * this runs are added by AccountService as usual, so none are missed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp(){
+        try(Stream<Integer> accountIds = accountRepository.streamAccountIds()){
+            accountIds.forEach(this::add);
+        }
+    }
+
+    /**
+     * Adds a newly inserted account to the set.
+     */
+    public void add(int accountId){
+        long stamp = lock.writeLock();
+        try{
+            if(accountId == 0){
+                if(!containsZero){
+                    containsZero = true;
+                    size++;
+                }
+                return;
+            }
+            if(insert(table, accountId)){
+                size++;
+                if(size > table.length - (table.length >>> 2)){
+                    int[] grown = new int[table.length * 2];
+                    for(int id : table){
+                        if(id != 0){
+                            insert(grown, id);
+                        }
+                    }
+                    table = grown;
+                }
+            }
+        }
+        finally{
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return - true if an account with this id is known to exist, false if it isn't in the set.
+     */
+    public boolean contains(int accountId){
+        long stamp = lock.tryOptimisticRead();
+        boolean found = lookup(accountId);
+        if(!lock.validate(stamp)){
+            stamp = lock.readLock();
+            try{
+                found = lookup(accountId);
+            }
+            finally{
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return - the number of ids in the set.
+     */
+    public int size(){
+        long stamp = lock.readLock();
+        try{
+            return size;
+        }
+        finally{
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return - the number of slots in the table (4 bytes each).
+     */
+    public int capacity(){
+        long stamp = lock.readLock();
+        try{
+            return table.length;
+        }
+        finally{
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Probes for the id.  Under an optimistic read the table may be changing underneath, so
+     * the probe never runs more than one lap and the answer is only used once validated.
+     */
+    private boolean lookup(int accountId){
+        if(accountId == 0){
+            return containsZero;
+        }
+        int[] slots = table;
+        int mask = slots.length - 1;
+        int index = mix(accountId) & mask;
+        for(int probes = 0; probes < slots.length; probes++){
+            int id = slots[index];
+            if(id == accountId){
+                return true;
+            }
+            if(id == 0){
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return - true if the id was added, false if it was there already.
+     */
+    private static boolean insert(int[] slots, int accountId){
+        int mask = slots.length - 1;
+        int index = mix(accountId) & mask;
+        while(slots[index] != 0){
+            if(slots[index] == accountId){
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        slots[index] = accountId;
+        return true;
+    }
+
+    /**
+     * MurmurHash3's finalizer, so that consecutive ids don't fill one run of slots.
+     */
+    private static int mix(int accountId){
+        int hash = accountId;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * @return - the smallest power-of-two table that holds this many ids without doubling.
+     */
+    private static int capacityFor(int expectedSize){
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / 0.75);
+        int capacity = MIN_CAPACITY;
+        while(capacity < needed && capacity < (1 << 30)){
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A small, thread-safe Bloom filter over strings.
+ *
+ * A Bloom filter answers "is this string in the set?" with either "definitely not" or
+ * "maybe".  It never forgets a string it was given, but it can wrongly say "maybe" for a
+ * string it has never seen (a false positive) at roughly the rate it was sized for.
+ * That makes it a cheap negative cache: a "definitely not" answer lets us skip the database.
+ *
+ * Bits are stored in an AtomicLongArray so concurrent put() calls never lose each other's bits.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Sizes the filter so that, once expectedInsertions strings have been added, the
+     * false-positive rate is about falsePositiveRate.
+     * @param expectedInsertions - how many strings we expect to add
+     * @param falsePositiveRate - the acceptable false-positive rate, e.g. 0.01 for 1%
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate){
+        if(expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1){
+            throw new IllegalArgumentException("Invalid Bloom filter sizing");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds a string to the filter.
+     */
+    public void put(String value){
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for(int i = 1; i <= hashCount; i++){
+            long bit = Math.floorMod(hash1 + i * (long) hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)){
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * @return - false if the string was definitely never added, true if it might have been.
+     */
+    public boolean mightContain(String value){
+        long hash = hash64(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for(int i = 1; i <= hashCount; i++){
+            long bit = Math.floorMod(hash1 + i * (long) hash2, bitCount);
+            if((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with the MurmurHash3 mixer so both
+     * 32-bit halves are well distributed (the filter derives all its probes from them).
+     */
+    private static long hash64(String value){
+        long hash = 0xcbf29ce484222325L;
+        for(int i = 0; i < value.length(); i++){
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Passes everything written to it on to another stream, and keeps a copy of it as long as the
+ * copy stays within a size limit.  Used to fill MessageListCache from a response that is being
+ * streamed anyway, without serializing the messages a second time.
+ */
+public class CapturingOutputStream extends FilterOutputStream {
+
+    private final int maxBytes;
+    private ByteArrayOutputStream copy = new ByteArrayOutputStream(8192); //null once the limit was passed
+
+    public CapturingOutputStream(OutputStream out, int maxBytes){
+        super(out);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        if(copy != null){
+            if(copy.size() + 1 > maxBytes){
+                copy = null;
+            }
+            else{
+                copy.write(b);
+            }
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        if(copy != null){
+            if(copy.size() + len > maxBytes){
+                copy = null;
+            }
+            else{
+                copy.write(b, off, len);
+            }
+        }
+    }
+
+    /**
+     * @return - everything written so far, or null if it didn't fit within the limit.
+     */
+    public byte[] captured(){
+        return copy == null ? null : copy.toByteArray();
+    }
+}
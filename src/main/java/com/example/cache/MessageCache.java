@@ -0,0 +1,94 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.entity.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * This class is an in-process, read-through cache of messages keyed by messageId.
+ * Most of our read traffic asks for a small set of hot messages over and over, so
+ * keeping those in memory saves a database round-trip per request.
+ *
+ * The cache is bounded both by size and by age (time since the entry was written),
+ * and it records hit/miss/eviction counters that can be read through stats().  The same
+ * counters are published as the "messages" cache metrics (cache.gets, cache.evictions, ...).
+ *
+ * The cache holds its own copies of the messages, never managed JPA entities, so
+ * nothing a caller does to a returned entity can leak into the cache.
+ * Writers must call put() or invalidate() AFTER their change has been committed.
+ */
+@Component
+public class MessageCache implements MeterBinder {
+
+    private final Cache<Integer, Message> cache;
+
+    public MessageCache(@Value("${app.cache.messages.maximum-size}") long maximumSize,
+                        @Value("${app.cache.messages.expire-after-write}") Duration expireAfterWrite){
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached message with the given id, calling the loader on a miss.
+     * Messages that don't exist (the loader returns an empty Optional) are not cached.
+     * @param messageId - the id of the message to look up
+     * @param loader - reads the message from the database on a cache miss
+     * @return - a copy of the message, or an empty Optional if there is no such message
+     */
+    public Optional<Message> get(int messageId, IntFunction<Optional<Message>> loader){
+        Message cached = cache.get(messageId, id -> loader.apply(id).map(MessageCache::copyOf).orElse(null));
+        return Optional.ofNullable(cached).map(MessageCache::copyOf);
+    }
+
+    /**
+     * Stores (or refreshes) a message that was just written to the database.
+     */
+    public void put(Message message){
+        cache.put(message.getMessageId(), copyOf(message));
+    }
+
+    /**
+     * Drops a message from the cache, for example after it was updated or deleted.
+     */
+    public void invalidate(int messageId){
+        cache.invalidate(messageId);
+    }
+
+    /**
+     * Hit, miss and eviction counters, used to size the cache.
+     */
+    public CacheStats stats(){
+        return cache.stats();
+    }
+
+    /**
+     * The approximate number of messages currently held in the cache.
+     */
+    public long size(){
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "messages");
+    }
+
+    private static Message copyOf(Message message){
+        return new Message(message.getMessageId(), message.getPostedBy(), message.getMessageText(), message.getTimePostedEpoch());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class caches the serialized JSON of the full message list (GET /messages), the most
+ * requested and most expensive payload we serve.  While the message table hasn't changed,
+ * every caller gets the same bytes straight from memory instead of a fresh query and a fresh
+ * serialization of every message.
+ *
+ * Only the latest version is kept, keyed by the list ETag from MessageVersions: any message
+ * write changes the tag, so a stale entry is simply never matched again and is replaced by the
+ * next full response.  Bodies over the size limit are not cached and keep being streamed.
+ *
+ * A gzip copy is compressed once, by the first caller that asks for one, and shared from then on.
+ */
+@Component
+public class MessageListCache {
+
+    private final int maxBytes;
+    private final AtomicReference<Entry> latest = new AtomicReference<>();
+
+    public MessageListCache(@Value("${app.cache.message-list.max-bytes}") int maxBytes){
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return - the largest JSON body, in bytes, that will be cached.
+     */
+    public int maxBytes(){
+        return maxBytes;
+    }
+
+    /**
+     * @return - the cached body for the given list ETag, or null if it isn't cached.
+     */
+    public Entry get(String etag){
+        Entry entry = latest.get();
+        return entry != null && entry.etag.equals(etag) ? entry : null;
+    }
+
+    /**
+     * Caches the JSON written for the given list ETag.  The tag must have been taken before
+     * the messages were read (see MessageVersions).
+     */
+    public void put(String etag, byte[] json){
+        if(json.length <= maxBytes){
+            latest.set(new Entry(etag, json));
+        }
+    }
+
+    /**
+     * One cached version of the message list.
+     */
+    public static class Entry {
+        private final String etag;
+        private final byte[] json;
+        private volatile byte[] gzip; //compressed on first use
+
+        private Entry(String etag, byte[] json){
+            this.etag = etag;
+            this.json = json;
+        }
+
+        /**
+         * @return - the JSON body.  Callers must not modify the array.
+         */
+        public byte[] json(){
+            return json;
+        }
+
+        /**
+         * @return - the JSON body, gzip-compressed.  Callers must not modify the array.
+         */
+        public byte[] gzip(){
+            byte[] compressed = gzip;
+            if(compressed == null){
+                synchronized(this){
+                    compressed = gzip;
+                    if(compressed == null){
+                        compressed = compress(json);
+                        gzip = compressed;
+                    }
+                }
+            }
+            return compressed;
+        }
+
+        private static byte[] compress(byte[] json){
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+            try(GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)){
+                gzip.write(json);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            return compressed.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.cache;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory version counters for the message table, used to build strong ETags so polling
+ * clients can be answered with 304 Not Modified without a database round-trip.
+ *
+ * There are two kinds of counter:
+ *  - a table version, bumped by every change to any message.  It tags the list endpoints
+ *    (GET /messages and GET /accounts/{accountId}/messages).  Updates and deletes only know the
+ *    messageId, not who posted it, so a per-account counter couldn't be kept exact without
+ *    an extra query; one table-wide counter is always correct.
+ *  - message versions, bumped by every change to one message.  They tag GET /messages/{messageId}.
+ *    To keep memory bounded they are striped: messages that share a stripe share a counter, which
+ *    only means an occasional unnecessary full response, never a stale one.
+ *
+ * Every tag also carries a random nonce picked at startup, since the counters restart from 0.
+ *
+ * Writers must bump AFTER their change has been committed, and readers must take the tag
+ * BEFORE they read the data.  A tag can then be older than the data it is sent with (the client
+ * just refetches next time), but never newer, which would leave the client stuck on stale data.
+ */
+@Component
+public class MessageVersions {
+
+    private static final int MESSAGE_STRIPES = 4096; //must be a power of two
+
+    private final String nonce = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong tableVersion = new AtomicLong();
+    private final AtomicLongArray messageVersions = new AtomicLongArray(MESSAGE_STRIPES);
+
+    /**
+     * Records that a message was inserted, updated or deleted.
+     */
+    public void messageChanged(int messageId){
+        messageVersions.incrementAndGet(stripeOf(messageId));
+        tableVersion.incrementAndGet();
+    }
+
+    /**
+     * @return - the ETag for any list of messages, e.g. GET /messages or a user's timeline.
+     */
+    public String listTag(){
+        return "\"t-" + nonce + "-" + tableVersion.get() + "\"";
+    }
+
+    /**
+     * @return - the ETag for GET /messages/{messageId}.
+     */
+    public String messageTag(int messageId){
+        return "\"m-" + nonce + "-" + messageId + "-" + messageVersions.get(stripeOf(messageId)) + "\"";
+    }
+
+    private static int stripeOf(int messageId){
+        return messageId & (MESSAGE_STRIPES - 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.repository.AccountRepository;
+import com.example.repository.AccountRepository.UsernameEntry;
+
+/**
+ * This class is an in-memory index of every username in the account table, so that
+ * registration doesn't need a database round-trip just to learn that a username is free.
+ *
+ * It has two layers:
+ *  - a Bloom filter that answers "definitely not taken" for most new usernames, and
+ *  - a concurrent map of username to accountId for the usernames that are taken.
+ *
+ * The index is warmed from the database once the application has started and is kept
+ * up to date by AccountService whenever an account is inserted.  Until it is warm, or
+ * whenever it can't give a definite answer, callers should fall back to the database.
+ * The unique constraint on account.username remains the final guard against duplicates.
+ */
+@Component
+public class UsernameIndex {
+
+    private final AccountRepository accountRepository;
+    private final BloomFilter bloomFilter;
+    private final ConcurrentHashMap<String, Integer> accountIds = new ConcurrentHashMap<>();
+    private volatile boolean warm = false;
+
+    public UsernameIndex(AccountRepository accountRepository,
+                         @Value("${app.cache.usernames.expected-insertions}") long expectedInsertions,
+                         @Value("${app.cache.usernames.false-positive-rate}") double falsePositiveRate){
+        this.accountRepository = accountRepository;
+        this.bloomFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+    }
+
+    /**
+     * Loads every existing username once the application is up.  Accounts registered while
+     * this runs are recorded by AccountService as usual, so none are missed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp(){
+        try(Stream<UsernameEntry> entries = accountRepository.streamUsernames()){
+            entries.forEach(entry -> record(entry.getUsername(), entry.getAccountId()));
+        }
+        warm = true;
+    }
+
+    /**
+     * Adds a newly inserted account to the index.
+     */
+    public void record(String username, Integer accountId){
+        accountIds.put(username, accountId);
+        bloomFilter.put(username);
+    }
+
+    /**
+     * @return - true once the index has been loaded and its answers can be trusted.
+     */
+    public boolean isWarm(){
+        return warm;
+    }
+
+    /**
+     * @return - false if the username is definitely not taken, true if it might be.
+     */
+    public boolean mightBeTaken(String username){
+        return bloomFilter.mightContain(username);
+    }
+
+    /**
+     * @return - the accountId registered under the username, or null if the index doesn't know it.
+     */
+    public Integer accountIdOf(String username){
+        return accountIds.get(username);
+    }
+}
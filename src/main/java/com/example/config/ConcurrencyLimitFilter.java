@@ -0,0 +1,72 @@
+package com.example.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This filter is only active when requests run on virtual threads
+ * (spring.threads.virtual.enabled=true, see application-virtual.properties).
+ *
+ * Virtual threads are cheap, so Tomcat no longer limits how many requests are in flight.
+ * Almost every handler needs a JDBC connection, though, and the connection pool is small.
+ * Without a limit, a burst of requests would all queue on the pool and time out together.
+ * This filter admits a bounded number of requests at once. Any request that can't get a
+ * slot within the acquire timeout is turned away with 503 Service Unavailable.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    public ConcurrencyLimitFilter(@Value("${app.virtual-threads.max-concurrent-requests}") int maxConcurrentRequests,
+                                  @Value("${app.virtual-threads.acquire-timeout}") Duration acquireTimeout){
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try{
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if(!acquired){
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        try{
+            filterChain.doFilter(request, response);
+        }
+        finally{
+            permits.release();
+        }
+    }
+
+    /**
+     * @return - how many more requests could be admitted right now.
+     */
+    public int availablePermits(){
+        return permits.availablePermits();
+    }
+}
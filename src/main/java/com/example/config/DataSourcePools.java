@@ -0,0 +1,29 @@
+package com.example.config;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Builds connection pools for the profiles that replace Boot's single DataSource with a
+ * routing one ("replica", "sharded").  Every pool gets the credentials of spring.datasource.*
+ * and the settings of spring.datasource.hikari.*, with its own url.
+ */
+public final class DataSourcePools {
+
+    private DataSourcePools(){
+    }
+
+    public static HikariDataSource pool(DataSourceProperties properties, Environment environment, String url, String name){
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
@@ -1,18 +1,33 @@
 package com.example.controller;
 import com.example.service.AccountService;
 import com.example.service.MessageService;
+import com.example.stream.MessageStreamHub;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 
+import com.example.cache.CapturingOutputStream;
+import com.example.cache.MessageListCache;
+import com.example.cache.MessageVersions;
+import com.example.dto.BatchMessageResult;
+import com.example.dto.MessageView;
 import com.example.entity.Account;
 import com.example.entity.Message;
 import com.example.exception.DuplicateUsernameException;
 import com.example.exception.InvalidCredentialsException;
-import com.example.repository.AccountRepository;
-import com.example.repository.MessageRepository;
+import com.example.exception.WriteBehindUnavailableException;
+import com.example.metrics.QueryBudget;
+import com.example.replica.ReplicaRouting;
+import com.example.search.MessageSearchIndex;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,7 +35,12 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * TODO: You will need to write your own endpoints and handlers for your controller using Spring. The endpoints you will need can be
@@ -42,12 +62,16 @@ import org.springframework.web.bind.annotation.RestController;
  */
 
 @RestController 
+@Profile("!reactive") //The "reactive" profile serves these endpoints from com.example.reactive instead
 public class SocialMediaController {
 
     private AccountService accountService; //Reference to accountService
-    private AccountRepository accountRepository;
     private MessageService messageService;
-    private MessageRepository messageRepository;
+    private ObjectMapper objectMapper; //Used to read NDJSON batches, which have no built-in message converter
+    private MessageVersions messageVersions; //Version counters the message ETags are built from
+    private MessageListCache messageListCache; //Serialized (and gzipped) body of the latest full message list
+    private MessageStreamHub messageStreamHub; //Pushes message changes to GET /messages/stream clients
+    private MessageSearchIndex messageSearchIndex; //Inverted index over messageText behind GET /messages/search
 
     /**
      * Allow Spring to inject an instance of the AccountService class
@@ -59,11 +83,15 @@ public class SocialMediaController {
      * @param accountService
      */
     @Autowired
-    public SocialMediaController(AccountService accountService, MessageService messageService, MessageRepository messageRepository, AccountRepository accountRepository) {
+    public SocialMediaController(AccountService accountService, MessageService messageService, ObjectMapper objectMapper, MessageVersions messageVersions, MessageListCache messageListCache,
+            MessageStreamHub messageStreamHub, MessageSearchIndex messageSearchIndex) {
         this.accountService = accountService;
         this.messageService = messageService;
-        this.messageRepository = messageRepository;
-        this.accountRepository = accountRepository; 
+        this.objectMapper = objectMapper;
+        this.messageVersions = messageVersions;
+        this.messageListCache = messageListCache;
+        this.messageStreamHub = messageStreamHub;
+        this.messageSearchIndex = messageSearchIndex;
     }
 
     /**
@@ -76,6 +104,7 @@ public class SocialMediaController {
      * convert it to an account object.
      */
     @PostMapping("/register")
+    @QueryBudget(2) //duplicate check (often answered by the username index) + insert
     public ResponseEntity<Account> registerAccount(@RequestBody Account account){
         try{
             accountService.addAccount(account);
@@ -97,9 +126,11 @@ public class SocialMediaController {
      * @return A JSON representation of the account including account ID
      */
     @PostMapping("/login")
+    @QueryBudget(1)
     public ResponseEntity<Account> verifyLogin(@RequestBody Account account){
-        if(accountService.credentialsExist(account)){
-            return new ResponseEntity<>(accountRepository.findByUsername(account.getUsername()), HttpStatus.OK);
+        Optional<Account> loggedIn = accountService.login(account); //one query returns the account itself
+        if(loggedIn.isPresent()){
+            return new ResponseEntity<>(loggedIn.get(), HttpStatus.OK);
         }
         else{
             return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
@@ -111,28 +142,211 @@ public class SocialMediaController {
      * It will be on the endpoint /messages.  The request body will contain
      * a JSON representation of a message, which will be persisted to the database
      * if the requirements are fulfilled - but will not contain a messageID. 
+     * In write-behind mode a full queue answers 503 Service Unavailable, and the client should retry later.
      */
     @PostMapping("/messages")
+    @QueryBudget(2) //insert, + postedBy check for an account the in-memory set doesn't know
     public ResponseEntity<Message> submitMessage(@RequestBody Message message) {
         if (messageService.meetsRequirements(message.getMessageText()) && messageService.postedByCheck(message)) {
-            messageRepository.save(message); 
-            return new ResponseEntity<>(message, HttpStatus.OK);
+            try{
+                Message savedMessage = messageService.submitMessage(message); 
+                return new ResponseEntity<>(savedMessage, HttpStatus.OK);
+            }
+            catch(WriteBehindUnavailableException e){
+                return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+            }
         } 
         else{ 
         return new ResponseEntity<>(message, HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Importers can submit many messages at once on /messages/batch, either as a JSON array
+     * or as NDJSON (one JSON message per line, Content-Type application/x-ndjson).
+     * The response body contains one result per message, in the order they were sent,
+     * telling whether it was saved (with its new messageId) or rejected.
+     * A batch that is empty or larger than MAX_BATCH_SIZE is a client error.
+     */
+    @PostMapping(value = "/messages/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchMessageResult>> submitMessageBatch(@RequestBody List<Message> messages) {
+        if (messages.isEmpty() || messages.size() > MessageService.MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(messageService.submitMessages(messages), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/messages/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<BatchMessageResult>> submitMessageStream(InputStream body) {
+        List<Message> messages = new ArrayList<>();
+        try (MappingIterator<Message> iterator = objectMapper.readerFor(Message.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (messages.size() == MessageService.MAX_BATCH_SIZE) {
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+                messages.add(iterator.nextValue());
+            }
+        }
+        catch (IOException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return submitMessageBatch(messages);
+    }
+
     /**
      * We now need a method to retrieve all the messages from the database  
      * The response body will contain a JSON representation of a list containing all messages
      * retrieved from the database. If there are no messages, then the
      * list will be empty.
+     * Rather than loading every message into a list first, the messages are streamed
+     * from the database straight into the response body as they are read.
+     *
+     * The message endpoints below all send an ETag.  A client that polls with If-None-Match
+     * gets 304 Not Modified, without a body or a database query, until a message changes.
+     * The tag is always taken before the data is read (see MessageVersions).
+     *
+     * The full list is also cached in serialized form (see MessageListCache): the first caller
+     * after a change gets it streamed from the database, and everyone after that gets the same
+     * bytes, gzip-compressed if they accept it, until the next change.  The cached array is handed
+     * to the response in a single write.  The gzip variant has its own ETag, since it is a
+     * different representation.  A request that has to read from the primary (see ReplicaRouting)
+     * doesn't take the list from the cache, which may have been filled from a replica that was
+     * behind; what it reads from the primary then replaces it.
      */
     @GetMapping("/messages")
-    public ResponseEntity<List<Message>> retrieveMessages(){
-        List<Message> retrievedMessages = messageRepository.findAll(); //find all method of jpa repository returns a list
-        return new ResponseEntity<>(retrievedMessages, HttpStatus.OK);
+    public ResponseEntity<StreamingResponseBody> retrieveMessages(WebRequest request){
+        String etag = messageVersions.listTag();
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        boolean primaryForced = ReplicaRouting.isPrimaryForced();
+        MessageListCache.Entry cached = primaryForced ? null : messageListCache.get(etag);
+        String responseTag = gzip && cached != null ? gzipTag(etag) : etag;
+        if(request.checkNotModified(responseTag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(responseTag).varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        if(cached != null){
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                    .eTag(responseTag).varyBy(HttpHeaders.ACCEPT_ENCODING);
+            byte[] bytes = gzip ? cached.gzip() : cached.json();
+            if(gzip){
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.contentLength(bytes.length).body(out -> out.write(bytes));
+        }
+        StreamingResponseBody body = out -> {
+            CapturingOutputStream capture = new CapturingOutputStream(out, messageListCache.maxBytes());
+            messageService.writeAllMessages(capture);
+            byte[] json = capture.captured();
+            if(json != null){
+                messageListCache.put(etag, json);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(etag).varyBy(HttpHeaders.ACCEPT_ENCODING).body(body);
+    }
+
+    /**
+     * Instead of polling GET /messages, clients can keep GET /messages/stream open and have
+     * changes pushed to them as server-sent events, as soon as they are committed:
+     *  - "created" with the full message,
+     *  - "updated" with the messageId and new messageText,
+     *  - "deleted" with the messageId.
+     * Each event carries an increasing id, which is not a messageId.  A client that falls too
+     * far behind is disconnected and should reconnect with the id of the last event it got in
+     * Last-Event-ID: it is sent the events it missed, or a "reset" event if they are too old,
+     * after which it should reload GET /messages.
+     * When the node already serves its maximum number of streams the answer is 503.
+     */
+    @GetMapping(value = "/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessages(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId){
+        SseEmitter emitter = messageStreamHub.subscribe(lastEventId);
+        if(emitter == null){
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+    /**
+     * Full-text search over messageText, e.g. GET /messages/search?q=hello+world&limit=20.
+     * Returns the messages containing every word of "q" (case-insensitive), best match first,
+     * answered from the in-memory MessageSearchIndex rather than the database.  "offset" skips
+     * that many of the best matches; the total number of matches is sent in X-Total-Count.
+     * A blank query, one with too many words, or a limit outside of 1..MAX_PAGE_SIZE is a
+     * client error; until the index has finished loading at startup the answer is 503.
+     */
+    @GetMapping("/messages/search")
+    @QueryBudget(0)
+    public ResponseEntity<List<MessageView>> searchMessages(@RequestParam String q, @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit){
+        int terms = MessageSearchIndex.tokenize(q).size();
+        if(terms == 0 || terms > MessageSearchIndex.MAX_QUERY_TERMS || offset < 0 || limit < 1 || limit > MessageService.MAX_PAGE_SIZE){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if(!messageSearchIndex.isWarm()){
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        MessageSearchIndex.SearchResult result = messageSearchIndex.search(q, offset, limit);
+        return ResponseEntity.ok().header("X-Total-Count", Integer.toString(result.total())).body(result.messages());
+    }
+
+    /**
+     * @return - true if an Accept-Encoding header lists gzip without ruling it out with q=0.
+     */
+    private static boolean acceptsGzip(String acceptEncoding){
+        if(acceptEncoding == null){
+            return false;
+        }
+        for(String coding : acceptEncoding.split(",")){
+            String[] parts = coding.trim().split(";");
+            if(parts[0].trim().equalsIgnoreCase("gzip")){
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static String gzipTag(String etag){
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * When a "limit" query parameter is given, /messages returns a single page instead of
+     * the whole table, e.g. GET /messages?after=9996&limit=50.  "after" is the last messageId
+     * the client already has (defaults to 0), so the next page starts right after it.
+     * A limit outside of 1..MAX_PAGE_SIZE is a client error.
+     */
+    @GetMapping(value = "/messages", params = {"limit", "!since"})
+    @QueryBudget(1)
+    public ResponseEntity<List<MessageView>> retrieveMessagePage(@RequestParam(defaultValue = "0") int after, @RequestParam int limit,
+            WebRequest request){
+        if(limit < 1 || limit > MessageService.MAX_PAGE_SIZE){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = messageVersions.listTag();
+        if(request.checkNotModified(etag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(messageService.getMessagePage(after, limit));
+    }
+
+    /**
+     * With a "since" query parameter, /messages returns the messages posted in a time window,
+     * oldest first, e.g. GET /messages?since=1669900000&until=1670000000&limit=500.
+     * "since" is inclusive and "until" (optional) exclusive, both in timePostedEpoch units.
+     * To continue after a page, send the timePostedEpoch of its last message as "since" and
+     * that message's messageId as "afterId".  Without "limit" the whole window is returned.
+     * A limit outside of 1..MAX_PAGE_SIZE or an empty window is a client error.
+     */
+    @GetMapping(value = "/messages", params = "since")
+    @QueryBudget(1)
+    public ResponseEntity<List<MessageView>> retrieveMessagesBetween(@RequestParam long since, @RequestParam(required = false) Long until,
+            @RequestParam(required = false) Integer afterId, @RequestParam(required = false) Integer limit, WebRequest request){
+        if((limit != null && (limit < 1 || limit > MessageService.MAX_PAGE_SIZE)) || (until != null && until <= since)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = messageVersions.listTag();
+        if(request.checkNotModified(etag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(messageService.getMessagesBetween(since, until, afterId, limit));
     }
 
     /**
@@ -141,9 +355,14 @@ public class SocialMediaController {
      * request at the endpoint /messages/{messageId}
      */
    @GetMapping("/messages/{messageId}")
-    public ResponseEntity<Message> retrieveMessageById(@PathVariable int messageId) {
-    Optional<Message> message = messageRepository.findById(messageId); //findById may or may not contain a null value of type Optional
-    return message.map(msg -> new ResponseEntity<>(msg, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.OK)); // Empty body, 200 OK
+    @QueryBudget(1) //0 when the message is cached or not modified
+    public ResponseEntity<Message> retrieveMessageById(@PathVariable int messageId, WebRequest request) {
+    String etag = messageVersions.messageTag(messageId);
+    if(request.checkNotModified(etag)){
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+    Optional<Message> message = messageService.getMessageById(messageId); //served from the message cache when possible, may or may not contain a value
+    return message.map(msg -> ResponseEntity.ok().eTag(etag).body(msg)).orElseGet(() -> ResponseEntity.ok().eTag(etag).build()); // Empty body, 200 OK
     }
 
     /**
@@ -154,10 +373,17 @@ public class SocialMediaController {
      * the response body will be empty.
      */
     @DeleteMapping("/messages/{messageId}")
-    public ResponseEntity<String> deleteMessageById(@PathVariable int messageId){
-        if(messageRepository.existsById(messageId)){
-            messageRepository.deleteById(messageId);
-            return new ResponseEntity<>("1 row deleted from database", HttpStatus.OK);
+    @QueryBudget(1)
+    public ResponseEntity<Integer> deleteMessageById(@PathVariable int messageId){
+        int deletedRows;
+        try{
+            deletedRows = messageService.deleteMessage(messageId); //the row count reported by the DELETE itself
+        }
+        catch(WriteBehindUnavailableException e){ //write-behind mode: the message is still queued
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if(deletedRows > 0){
+            return new ResponseEntity<>(deletedRows, HttpStatus.OK);
         }
         else{
             return new ResponseEntity<>(HttpStatus.OK);
@@ -172,32 +398,49 @@ public class SocialMediaController {
      * any other information
      */
     @PatchMapping("/messages/{messageId}")
+    @QueryBudget(1)
     public ResponseEntity<Integer> updateMessage(@PathVariable int messageId, @RequestBody Map<String, String> body){ 
         String newText = body.get("messageText");
         if(newText == null || newText.isBlank() || newText.length() > 255){
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        Optional<Message> optionalMessage = messageRepository.findById(messageId);
-        if(optionalMessage.isEmpty()){
+        int updatedRows;
+        try{
+            updatedRows = messageService.updateMessageText(messageId, newText); //the row count reported by the UPDATE itself
+        }
+        catch(WriteBehindUnavailableException e){ //write-behind mode: the message is still queued
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if(updatedRows == 0){
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-
-        Message existingMessage = optionalMessage.get();
-        existingMessage.setMessageText(newText);
-        messageRepository.save(existingMessage);
-        return new ResponseEntity<>(1, HttpStatus.OK);
+        return new ResponseEntity<>(updatedRows, HttpStatus.OK);
     }
 
     
      //We now need a method to retrieve all message written by a particular user
+     //Messages come back newest first. "limit" caps the page size, and "before"/"beforeId"
+     //(the timePostedEpoch and messageId of the last message already seen) fetch the next page.
+     //"since" (inclusive) and "until" (exclusive) restrict it to a time window.
      @GetMapping("/accounts/{accountId}/messages")
-     public ResponseEntity<List<Message>> retrieveMessagesFromUser(@PathVariable int accountId) {
-        List<Message> accountMessages = messageRepository.findByPostedBy(accountId);
+     @QueryBudget(1)
+     public ResponseEntity<List<MessageView>> retrieveMessagesFromUser(@PathVariable int accountId,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int beforeId, @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long until, WebRequest request) {
+        if ((limit != null && (limit < 1 || limit > MessageService.MAX_PAGE_SIZE)) || (since != null && until != null && until <= since)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String etag = messageVersions.listTag();
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<MessageView> accountMessages = messageService.getTimeline(accountId, since, until, before, beforeId, limit);
         if (accountMessages == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(accountMessages, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(etag).body(accountMessages);
     }
 
 }
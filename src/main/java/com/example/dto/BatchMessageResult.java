@@ -0,0 +1,89 @@
+package com.example.dto;
+
+/**
+ * This is a class that models the outcome of one message in a batch submitted to
+ * POST /messages/batch.  Each result points back at the position of the message in the
+ * request and carries the status the single-message endpoint would have returned for it.
+ */
+public class BatchMessageResult {
+    /**
+     * The zero-based position of the message in the submitted batch.
+     */
+    private int index;
+    /**
+     * 200 if the message was persisted, 400 if it was rejected.
+     */
+    private int status;
+    /**
+     * The generated id of the persisted message, or null if it was rejected.
+     */
+    private Integer messageId;
+    /**
+     * Why the message was rejected, or null if it was persisted.
+     */
+    private String error;
+
+    /**
+     * A default, no-args constructor, as well as correctly formatted getters and setters, are needed for
+     * Jackson Objectmapper to work.
+     */
+    public BatchMessageResult(){
+    }
+
+    public BatchMessageResult(int index, int status, Integer messageId, String error){
+        this.index = index;
+        this.status = status;
+        this.messageId = messageId;
+        this.error = error;
+    }
+
+    public static BatchMessageResult created(int index, Integer messageId){
+        return new BatchMessageResult(index, 200, messageId, null);
+    }
+
+    public static BatchMessageResult rejected(int index, String error){
+        return new BatchMessageResult(index, 400, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Integer getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Integer messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchMessageResult{" +
+                "index=" + index +
+                ", status=" + status +
+                ", messageId=" + messageId +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A read-only view of a message, used for the endpoints that return lists of messages.
+ *
+ * MessageRepository builds these straight from the query result (a JPQL constructor
+ * expression), so listing messages never puts entities in the persistence context: there are
+ * no dirty-checking snapshots to take and nothing to detach afterwards.  On the wire a view looks
+ * exactly like a Message, and it is written by MessageViewSerializer instead of by reflection.
+ */
+@JsonSerialize(using = MessageViewSerializer.class)
+public record MessageView(Integer messageId, Integer postedBy, String messageText, Long timePostedEpoch) {
+}
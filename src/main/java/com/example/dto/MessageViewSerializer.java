@@ -0,0 +1,67 @@
+package com.example.dto;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes a MessageView in the same JSON shape Jackson produces for a Message:
+ * {"messageId":1,"postedBy":9999,"messageText":"...","timePostedEpoch":1669947792}
+ *
+ * The fields are written directly, with their names encoded once up front, so long message
+ * lists are serialized without any reflection or per-field lookups.
+ */
+public class MessageViewSerializer extends StdSerializer<MessageView> {
+
+    private static final SerializedString MESSAGE_ID = new SerializedString("messageId");
+    private static final SerializedString POSTED_BY = new SerializedString("postedBy");
+    private static final SerializedString MESSAGE_TEXT = new SerializedString("messageText");
+    private static final SerializedString TIME_POSTED_EPOCH = new SerializedString("timePostedEpoch");
+
+    public MessageViewSerializer(){
+        super(MessageView.class);
+    }
+
+    @Override
+    public void serialize(MessageView view, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        write(view, generator);
+    }
+
+    /**
+     * Writes one message as a JSON object.  Used directly when we stream messages ourselves.
+     */
+    public static void write(MessageView view, JsonGenerator generator) throws IOException {
+        generator.writeStartObject(view);
+        generator.writeFieldName(MESSAGE_ID);
+        writeNumber(generator, view.messageId());
+        generator.writeFieldName(POSTED_BY);
+        writeNumber(generator, view.postedBy());
+        generator.writeFieldName(MESSAGE_TEXT);
+        if(view.messageText() == null){
+            generator.writeNull();
+        }
+        else{
+            generator.writeString(view.messageText());
+        }
+        generator.writeFieldName(TIME_POSTED_EPOCH);
+        if(view.timePostedEpoch() == null){
+            generator.writeNull();
+        }
+        else{
+            generator.writeNumber(view.timePostedEpoch());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator generator, Integer value) throws IOException {
+        if(value == null){
+            generator.writeNull();
+        }
+        else{
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.entity;
 
-import javax.persistence.*;
+import jakarta.persistence.*;
 
 /**
  * This is a class that models an Account.
@@ -12,10 +12,13 @@ import javax.persistence.*;
 public class Account {
     /**
      * An id for this Account. You should use this as the Entity's ID.
+     * Ids come from the account_seq sequence in blocks of 50, the same way messages use message_seq,
+     * so registrations don't each need their own sequence round-trip.
      */
     @Column(name="accountId")
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @SequenceGenerator(name = "account_seq", sequenceName = "account_seq", allocationSize = 50)
     private Integer accountId;
     /**
      * A username for this Account (must be unique and not blank)
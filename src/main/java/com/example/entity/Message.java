@@ -1,6 +1,6 @@
 package com.example.entity;
 
-import javax.persistence.*;
+import jakarta.persistence.*;
 
 /**
  * This is a class that models a Message.
@@ -12,9 +12,15 @@ import javax.persistence.*;
 public class Message {
      /**
      * An id for this message which will be automatically generated by the database.
+     * Ids come from the message_seq sequence in blocks of 50 (see the pooled-lo optimizer in
+     * application.properties), so inserting many messages doesn't cost one sequence call each
+     * and Hibernate can batch the inserts.  The allocationSize must match the sequence's
+     * "increment by" in data.sql.
      */
      @Column (name="messageId")
-     @Id @GeneratedValue
+     @Id
+     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+     @SequenceGenerator(name = "message_seq", sequenceName = "message_seq", allocationSize = 50)
     private Integer messageId;
     /**
      * The id for the user who has posted this message. We will assume that this is provided by the front-end of this
@@ -0,0 +1,14 @@
+package com.example.exception;
+
+/**
+ * Thrown in write-behind mode when a write can't be taken on right now: the queue of messages
+ * waiting to be written is full, the application is shutting down, or a queued message didn't
+ * reach the database in time to be changed.  The client should retry later (503).
+ */
+
+public class WriteBehindUnavailableException extends RuntimeException {
+
+    public WriteBehindUnavailableException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Most of the metrics come straight from Spring Boot's actuator once it is on the classpath:
+ * request and repository timers, connection-pool gauges, Hibernate statistics and JVM memory
+ * (including the allocation rate).  See application.properties for how they are exposed.
+ *
+ * This class only wires in what Boot can't do on its own: counting the SQL statements per request.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer(){
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+}
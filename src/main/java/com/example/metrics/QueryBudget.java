@@ -0,0 +1,27 @@
+package com.example.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the most SQL statements a controller method may issue while handling one request.
+ * QueryCountFilter counts the statements and QueryBudgetMonitor reports any request that
+ * goes over, which is how N+1 selects and redundant lookups get noticed.
+ *
+ * Fetching the next block of ids from a sequence is not counted: with pooled sequences it only
+ * happens once every allocationSize inserts, so it would make budgets depend on which request
+ * happened to cross a block boundary.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+
+    /**
+     * The maximum number of statements for one request.
+     */
+    int value();
+}
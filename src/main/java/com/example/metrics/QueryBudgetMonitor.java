@@ -0,0 +1,79 @@
+package com.example.metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Checks the statement count of every request against its handler's @QueryBudget.
+ *
+ * A request over budget is logged as a warning, counted in the
+ * http.server.requests.query.budget.exceeded metric and kept in a short list of recent
+ * violations.  Tests exercise the endpoints and then assert that the list is empty, so a
+ * change that adds a query to a request path fails the build instead of showing up in production.
+ */
+@Component
+public class QueryBudgetMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetMonitor.class);
+    private static final int MAX_RECENT_VIOLATIONS = 100;
+
+    private final MeterRegistry meterRegistry;
+    private final Deque<QueryBudgetViolation> recentViolations = new ArrayDeque<>(); //guarded by itself
+
+    public QueryBudgetMonitor(MeterRegistry meterRegistry){
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param handler - a readable name for the controller method that handled the request
+     * @param budget - the handler's @QueryBudget
+     * @param statements - the statements the request issued, not counting sequence fetches
+     * @return - true if the request stayed within its budget
+     */
+    public boolean check(String handler, int budget, int statements){
+        if(statements <= budget){
+            return true;
+        }
+        QueryBudgetViolation violation = new QueryBudgetViolation(handler, budget, statements);
+        log.warn("Query budget exceeded: {}", violation);
+        Counter.builder("http.server.requests.query.budget.exceeded")
+                .description("Requests that issued more SQL statements than their handler's @QueryBudget")
+                .tag("handler", handler)
+                .register(meterRegistry)
+                .increment();
+        synchronized(recentViolations){
+            if(recentViolations.size() == MAX_RECENT_VIOLATIONS){
+                recentViolations.removeFirst();
+            }
+            recentViolations.addLast(violation);
+        }
+        return false;
+    }
+
+    /**
+     * @return - the most recent violations, oldest first.
+     */
+    public List<QueryBudgetViolation> violations(){
+        synchronized(recentViolations){
+            return new ArrayList<>(recentViolations);
+        }
+    }
+
+    /**
+     * Forgets the recorded violations.
+     */
+    public void clear(){
+        synchronized(recentViolations){
+            recentViolations.clear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.metrics;
+
+/**
+ * A request that issued more SQL statements than its handler's @QueryBudget allows.
+ */
+public class QueryBudgetViolation {
+
+    private final String handler; //the controller method, e.g. SocialMediaController#deleteMessageById
+    private final int budget;
+    private final int statements;
+
+    public QueryBudgetViolation(String handler, int budget, int statements){
+        this.handler = handler;
+        this.budget = budget;
+        this.statements = statements;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    @Override
+    public String toString() {
+        return handler + " issued " + statements + " SQL statements, its budget is " + budget;
+    }
+}
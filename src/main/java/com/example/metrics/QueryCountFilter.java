@@ -0,0 +1,71 @@
+package com.example.metrics;
+
+import java.io.IOException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many SQL statements every HTTP request issued, as the distribution summary
+ * http.server.requests.queries.  It is tagged like http.server.requests (method, uri template
+ * and status), so the two can be lined up to find the request paths that cost the most queries.
+ *
+ * When the handler declares a @QueryBudget, the count (less any sequence fetches) is also
+ * checked against it by QueryBudgetMonitor.
+ *
+ * Only statements issued on the request thread are counted.  GET /messages streams its body
+ * from another thread after the handler returns, so its query is not included.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    static final String METRIC_NAME = "http.server.requests.queries";
+
+    private final MeterRegistry meterRegistry;
+    private final QueryBudgetMonitor queryBudgetMonitor;
+
+    public QueryCountFilter(MeterRegistry meterRegistry, QueryBudgetMonitor queryBudgetMonitor){
+        this.meterRegistry = meterRegistry;
+        this.queryBudgetMonitor = queryBudgetMonitor;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryCounter.Count count = QueryCounter.start();
+        try{
+            filterChain.doFilter(request, response);
+        }
+        finally{
+            QueryCounter.stop();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder(METRIC_NAME)
+                    .description("SQL statements issued while handling an HTTP request")
+                    .baseUnit("queries")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+                    .tag("status", Integer.toString(response.getStatus()))
+                    .register(meterRegistry)
+                    .record(count.getStatements());
+            Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            if(handler instanceof HandlerMethod handlerMethod){
+                QueryBudget budget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+                if(budget != null){
+                    String name = handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+                    queryBudgetMonitor.check(name, budget.value(), count.getStatements() - count.getSequenceFetches());
+                }
+            }
+        }
+    }
+}
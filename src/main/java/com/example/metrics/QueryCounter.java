@@ -0,0 +1,71 @@
+package com.example.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so we can tell how
+ * many queries a single HTTP request costs.
+ *
+ * Hibernate hands every statement it is about to prepare to this inspector (it is registered
+ * in MetricsConfig).  Counting only happens between start() and stop() on the same thread;
+ * statements issued anywhere else are passed through untouched.
+ * A JDBC batch is prepared once, so a batched insert counts as one statement.
+ *
+ * Sequence fetches ("next value for ...") are counted too, but also tallied on their own so
+ * that query budgets can leave them out.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Starts counting the statements prepared on this thread.
+     * @return - the counter, which keeps its value after stop()
+     */
+    public static Count start(){
+        Count count = new Count();
+        CURRENT.set(count);
+        return count;
+    }
+
+    /**
+     * Stops counting on this thread.
+     */
+    public static void stop(){
+        CURRENT.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Count count = CURRENT.get();
+        if(count != null){
+            count.statements++;
+            if(sql.contains("next value for")){
+                count.sequenceFetches++;
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * The number of statements counted on one thread.  Only that thread writes to it.
+     */
+    public static class Count {
+        private int statements;
+        private int sequenceFetches;
+
+        /**
+         * @return - every statement prepared, sequence fetches included.
+         */
+        public int getStatements(){
+            return statements;
+        }
+
+        /**
+         * @return - the statements that fetched the next value of a sequence.
+         */
+        public int getSequenceFetches(){
+            return sequenceFetches;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.reactive;
+
+import java.util.Optional;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.entity.Account;
+import com.example.exception.DuplicateUsernameException;
+import com.example.exception.InvalidCredentialsException;
+import com.example.service.AccountService;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Under the "reactive" profile SocialMediaController is switched off, so this controller keeps
+ * /register and /login available.  Account traffic is light, so it reuses the blocking
+ * AccountService, moved off the event loop onto Reactor's bounded elastic scheduler.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveAccountController {
+
+    private AccountService accountService;
+
+    public ReactiveAccountController(AccountService accountService){
+        this.accountService = accountService;
+    }
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<Account>> registerAccount(@RequestBody Account account){
+        return Mono.fromCallable(() -> {
+                    accountService.addAccount(account);
+                    return new ResponseEntity<>(account, HttpStatus.OK);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(DuplicateUsernameException.class, e -> Mono.just(new ResponseEntity<>(account, HttpStatus.CONFLICT)))
+                .onErrorResume(InvalidCredentialsException.class, e -> Mono.just(new ResponseEntity<>(account, HttpStatus.BAD_REQUEST)));
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<Account>> verifyLogin(@RequestBody Account account){
+        return Mono.fromCallable(() -> accountService.login(account))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map((Optional<Account> loggedIn) -> loggedIn
+                        .map(found -> new ResponseEntity<>(found, HttpStatus.OK))
+                        .orElseGet(() -> new ResponseEntity<>(HttpStatus.UNAUTHORIZED)));
+    }
+}
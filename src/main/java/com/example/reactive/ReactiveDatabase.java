@@ -0,0 +1,52 @@
+package com.example.reactive;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+/**
+ * This class owns the R2DBC connection pool used by the reactive variant of the API.
+ *
+ * The pool is deliberately not exposed as a ConnectionFactory bean: Spring Boot turns off
+ * the JDBC DataSource (and with it JPA) as soon as such a bean exists, and the reactive
+ * profile still needs JPA for the account endpoints.  Both stacks read the same H2 database.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveDatabase implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+    private final DatabaseClient databaseClient;
+
+    public ReactiveDatabase(@Value("${app.r2dbc.url}") String url,
+                            @Value("${app.r2dbc.username}") String username,
+                            @Value("${app.r2dbc.password}") String password,
+                            @Value("${app.r2dbc.pool.initial-size}") int initialSize,
+                            @Value("${app.r2dbc.pool.max-size}") int maxSize){
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+    }
+
+    public DatabaseClient getDatabaseClient(){
+        return databaseClient;
+    }
+
+    @Override
+    public void destroy(){
+        connectionPool.dispose();
+    }
+}
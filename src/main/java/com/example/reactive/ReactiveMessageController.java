@@ -0,0 +1,120 @@
+package com.example.reactive;
+
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.cache.AccountIdSet;
+import com.example.entity.Message;
+import com.example.service.MessageService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * This controller is the WebFlux counterpart of the message endpoints in SocialMediaController.
+ * It is only active under the "reactive" profile, which runs the app on Netty instead of Tomcat.
+ *
+ * Every handler mirrors the contract of its MVC twin (paths, parameters, status codes, and
+ * empty bodies where the MVC version returns none), but nothing here blocks: results are
+ * streamed from ReactiveMessageRepository as the database produces them.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveMessageController {
+
+    private ReactiveMessageRepository reactiveMessageRepository;
+    private MessageService messageService; //Only used for its validation rules, which don't touch the database
+    private AccountIdSet accountIds; //In-memory set of existing accountIds, asked before the database
+
+    public ReactiveMessageController(ReactiveMessageRepository reactiveMessageRepository, MessageService messageService, AccountIdSet accountIds){
+        this.reactiveMessageRepository = reactiveMessageRepository;
+        this.messageService = messageService;
+        this.accountIds = accountIds;
+    }
+
+    @PostMapping("/messages")
+    public Mono<ResponseEntity<Message>> submitMessage(@RequestBody Message message){
+        if(message.getMessageText() == null || !messageService.meetsRequirements(message.getMessageText()) || message.getPostedBy() == null){
+            return Mono.just(new ResponseEntity<>(message, HttpStatus.BAD_REQUEST));
+        }
+        Mono<Boolean> accountExists = accountIds.contains(message.getPostedBy())
+                ? Mono.just(true)
+                : reactiveMessageRepository.accountExists(message.getPostedBy())
+                        .doOnNext(exists -> {
+                            if(exists){
+                                accountIds.add(message.getPostedBy()); //an account the set hadn't heard of
+                            }
+                        });
+        return accountExists
+                .flatMap(exists -> exists
+                        ? reactiveMessageRepository.insert(message).map(saved -> new ResponseEntity<>(saved, HttpStatus.OK))
+                        : Mono.just(new ResponseEntity<>(message, HttpStatus.BAD_REQUEST)));
+    }
+
+    @GetMapping("/messages")
+    public Flux<Message> retrieveMessages(){
+        return reactiveMessageRepository.findAll();
+    }
+
+    @GetMapping(value = "/messages", params = {"limit", "!since"})
+    public ResponseEntity<Flux<Message>> retrieveMessagePage(@RequestParam(defaultValue = "0") int after, @RequestParam int limit){
+        if(limit < 1 || limit > MessageService.MAX_PAGE_SIZE){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(reactiveMessageRepository.findPage(after, limit), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/messages", params = "since")
+    public ResponseEntity<Flux<Message>> retrieveMessagesBetween(@RequestParam long since, @RequestParam(required = false) Long until,
+            @RequestParam(required = false) Integer afterId, @RequestParam(required = false) Integer limit){
+        if((limit != null && (limit < 1 || limit > MessageService.MAX_PAGE_SIZE)) || (until != null && until <= since)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(reactiveMessageRepository.findBetween(since, until, afterId, limit), HttpStatus.OK);
+    }
+
+    @GetMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Message>> retrieveMessageById(@PathVariable int messageId){
+        return reactiveMessageRepository.findById(messageId)
+                .map(message -> new ResponseEntity<>(message, HttpStatus.OK))
+                .defaultIfEmpty(new ResponseEntity<>(HttpStatus.OK)); // Empty body, 200 OK
+    }
+
+    @DeleteMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Long>> deleteMessageById(@PathVariable int messageId){
+        return reactiveMessageRepository.deleteById(messageId)
+                .map(rows -> rows > 0 ? new ResponseEntity<>(rows, HttpStatus.OK) : new ResponseEntity<Long>(HttpStatus.OK));
+    }
+
+    @PatchMapping("/messages/{messageId}")
+    public Mono<ResponseEntity<Long>> updateMessage(@PathVariable int messageId, @RequestBody Map<String, String> body){
+        String newText = body.get("messageText");
+        if(newText == null || !messageService.meetsRequirements(newText)){
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        return reactiveMessageRepository.updateText(messageId, newText)
+                .map(rows -> rows > 0 ? new ResponseEntity<>(rows, HttpStatus.OK) : new ResponseEntity<Long>(HttpStatus.BAD_REQUEST));
+    }
+
+    @GetMapping("/accounts/{accountId}/messages")
+    public ResponseEntity<Flux<Message>> retrieveMessagesFromUser(@PathVariable int accountId,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int beforeId, @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long until){
+        if((limit != null && (limit < 1 || limit > MessageService.MAX_PAGE_SIZE)) || (since != null && until != null && until <= since)){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(reactiveMessageRepository.findTimeline(accountId, since, until, before, beforeId, limit), HttpStatus.OK);
+    }
+}
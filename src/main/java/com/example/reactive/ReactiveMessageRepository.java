@@ -0,0 +1,176 @@
+package com.example.reactive;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+
+import com.example.entity.Message;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * This class is the non-blocking counterpart of MessageRepository, used by the reactive
+ * variant of the API.  It runs the same queries against the same "message" table, through
+ * R2DBC instead of JPA, so rows are emitted as they are read and no thread ever waits on
+ * the database.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveMessageRepository {
+
+    private static final String COLUMNS = "messageId, postedBy, messageText, timePostedEpoch";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveMessageRepository(ReactiveDatabase reactiveDatabase){
+        this.databaseClient = reactiveDatabase.getDatabaseClient();
+    }
+
+    /**
+     * Every message, in ascending messageId order.
+     */
+    public Flux<Message> findAll(){
+        return databaseClient.sql("select " + COLUMNS + " from message order by messageId")
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    /**
+     * One keyset page: the messages whose id is greater than "after", in ascending id order.
+     */
+    public Flux<Message> findPage(int after, int limit){
+        return databaseClient.sql("select " + COLUMNS + " from message where messageId > :after order by messageId limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveMessageRepository::toMessage)
+                .all();
+    }
+
+    public Mono<Message> findById(int messageId){
+        return databaseClient.sql("select " + COLUMNS + " from message where messageId = :messageId")
+                .bind("messageId", messageId)
+                .map(ReactiveMessageRepository::toMessage)
+                .one();
+    }
+
+    /**
+     * A user's messages newest first, optionally continuing after (before, beforeId) and capped at limit.
+     * Uses the same (postedBy, timePostedEpoch desc, messageId desc) index as the JPA timeline queries.
+     * A non-null "since" (inclusive) or "until" (exclusive) restricts it to that time window.
+     */
+    public Flux<Message> findTimeline(int accountId, Long since, Long until, Long before, int beforeId, Integer limit){
+        StringBuilder sql = new StringBuilder("select " + COLUMNS + " from message where postedBy = :accountId");
+        if(since != null){
+            sql.append(" and timePostedEpoch >= :since");
+        }
+        if(until != null){
+            sql.append(" and timePostedEpoch < :until");
+        }
+        if(before != null){
+            sql.append(" and (timePostedEpoch < :before or (timePostedEpoch = :before and messageId < :beforeId))");
+        }
+        //With a time window, H2 only reads the index range in order if postedBy leads the order by (see MessageRepository)
+        sql.append(since != null || until != null ? " order by postedBy, timePostedEpoch desc, messageId desc" : " order by timePostedEpoch desc, messageId desc");
+        if(limit != null){
+            sql.append(" limit :limit");
+        }
+        GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("accountId", accountId);
+        if(since != null){
+            spec = spec.bind("since", since);
+        }
+        if(until != null){
+            spec = spec.bind("until", until);
+        }
+        if(before != null){
+            spec = spec.bind("before", before).bind("beforeId", beforeId);
+        }
+        if(limit != null){
+            spec = spec.bind("limit", limit);
+        }
+        return spec.map(ReactiveMessageRepository::toMessage).all();
+    }
+
+    /**
+     * Every user's messages posted in [since, until) oldest first, optionally continuing after
+     * the message (since, afterId) and capped at limit.  Uses the (timePostedEpoch, messageId)
+     * index, like the JPA time window queries.
+     */
+    public Flux<Message> findBetween(long since, Long until, Integer afterId, Integer limit){
+        StringBuilder sql = new StringBuilder("select " + COLUMNS + " from message where timePostedEpoch >= :since");
+        if(until != null){
+            sql.append(" and timePostedEpoch < :until");
+        }
+        if(afterId != null){
+            sql.append(" and (timePostedEpoch > :since or messageId > :afterId)");
+        }
+        sql.append(" order by timePostedEpoch, messageId");
+        if(limit != null){
+            sql.append(" limit :limit");
+        }
+        GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("since", since);
+        if(until != null){
+            spec = spec.bind("until", until);
+        }
+        if(afterId != null){
+            spec = spec.bind("afterId", afterId);
+        }
+        if(limit != null){
+            spec = spec.bind("limit", limit);
+        }
+        return spec.map(ReactiveMessageRepository::toMessage).all();
+    }
+
+    public Mono<Boolean> accountExists(int accountId){
+        return databaseClient.sql("select 1 from account where accountId = :accountId")
+                .bind("accountId", accountId)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+    /**
+     * Inserts a message and returns it with its generated id.  The id comes from the
+     * message_seq default on the messageId column, the same sequence Hibernate allocates from.
+     */
+    public Mono<Message> insert(Message message){
+        GenericExecuteSpec spec = databaseClient.sql("insert into message (postedBy, messageText, timePostedEpoch) values (:postedBy, :messageText, :timePostedEpoch)")
+                .bind("postedBy", message.getPostedBy())
+                .bind("messageText", message.getMessageText());
+        spec = message.getTimePostedEpoch() == null
+                ? spec.bindNull("timePostedEpoch", Long.class)
+                : spec.bind("timePostedEpoch", message.getTimePostedEpoch());
+        return spec.filter(statement -> statement.returnGeneratedValues("messageId"))
+                .map(row -> row.get("messageId", Integer.class))
+                .one()
+                .map(messageId -> new Message(messageId, message.getPostedBy(), message.getMessageText(), message.getTimePostedEpoch()));
+    }
+
+    /**
+     * @return - the number of rows updated (0 if there is no such message)
+     */
+    public Mono<Long> updateText(int messageId, String messageText){
+        return databaseClient.sql("update message set messageText = :messageText where messageId = :messageId")
+                .bind("messageText", messageText)
+                .bind("messageId", messageId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * @return - the number of rows deleted (0 if there is no such message)
+     */
+    public Mono<Long> deleteById(int messageId){
+        return databaseClient.sql("delete from message where messageId = :messageId")
+                .bind("messageId", messageId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Message toMessage(Readable row){
+        return new Message(row.get("messageId", Integer.class), row.get("postedBy", Integer.class),
+                row.get("messageText", String.class), row.get("timePostedEpoch", Long.class));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.replica;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import org.h2.api.Trigger;
+
+/**
+ * H2 row trigger behind the replication stand-in (see db/replica/replication-log.sql).
+ *
+ * It records the table and primary key of every inserted, updated or deleted row in
+ * replication_log.  The insert is part of the transaction that changed the row, so only
+ * committed changes ever show up in the log.  ReplicationStandIn reads the log and copies the
+ * current state of those rows to the replicas.  The primary key must be the first column.
+ */
+public class ChangeLogTrigger implements Trigger {
+
+    private String tableName;
+
+    @Override
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type){
+        this.tableName = tableName.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        Object[] row = newRow != null ? newRow : oldRow;
+        try(PreparedStatement statement = connection.prepareStatement("insert into replication_log (tableName, rowId) values (?, ?)")){
+            statement.setString(1, tableName);
+            statement.setInt(2, ((Number) row[0]).intValue());
+            statement.executeUpdate();
+        }
+    }
+}
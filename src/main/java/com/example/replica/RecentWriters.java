@@ -0,0 +1,54 @@
+package com.example.replica;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.stream.MessageEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Remembers which accounts wrote something in the last read-your-writes window
+ * (app.replica.read-your-writes-window).  Their reads go to the primary until the window has
+ * passed, so they always see their own changes even though the replicas lag behind.  The
+ * window should be longer than the replicas ever lag.
+ *
+ * An account counts as a writer when it posts a message (its postedBy), and when it makes any
+ * successful write request while naming itself in the X-Account-Id header.
+ */
+@Component
+@Profile("replica")
+public class RecentWriters {
+
+    private final Cache<Integer, Boolean> writers; //accountId -> wrote within the window
+
+    public RecentWriters(@Value("${app.replica.read-your-writes-window}") Duration window,
+                         @Value("${app.replica.max-recent-writers}") long maxRecentWriters){
+        this.writers = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maxRecentWriters)
+                .build();
+    }
+
+    public void recordWrite(int accountId){
+        writers.put(accountId, Boolean.TRUE);
+    }
+
+    /**
+     * @return - true if the account wrote within the window, so its reads must see the primary.
+     */
+    public boolean wroteRecently(int accountId){
+        return writers.getIfPresent(accountId) != null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event){
+        if(event.type() == MessageEvent.Type.created){
+            recordWrite(event.message().postedBy());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.example.config.DataSourcePools;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Wiring of the "replica" profile (see application-replica.properties).
+ *
+ * The DataSource the application sees routes each connection to the primary database
+ * (spring.datasource.*) or to one of the replicas (app.replica.urls).  Since it replaces the
+ * DataSource Boot would have built, the pools are configured here from the same properties
+ * (see DataSourcePools).
+ */
+@Configuration
+@Profile("replica")
+public class ReplicaConfig {
+
+    @Bean
+    public ReplicaDataSources replicaDataSources(DataSourceProperties properties, Environment environment,
+                                                 @Value("${app.replica.urls}") List<String> replicaUrls){
+        HikariDataSource primary = DataSourcePools.pool(properties, environment, properties.determineUrl(), "primary");
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for(int i = 0; i < replicaUrls.size(); i++){
+            replicas.add(DataSourcePools.pool(properties, environment, replicaUrls.get(i), "replica-" + i));
+        }
+        return new ReplicaDataSources(primary, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaDataSources dataSources, MeterRegistry meterRegistry){
+        List<DataSource> replicas = new ArrayList<>(dataSources.getReplicas());
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(dataSources.getPrimary(), replicas, meterRegistry));
+    }
+
+    /**
+     * Picked up by the application task executor, which runs streamed response bodies.
+     */
+    @Bean
+    public TaskDecorator replicaRoutingTaskDecorator(){
+        return ReplicaRouting.taskDecorator();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.replica;
+
+import java.util.List;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The connection pools of the primary database and of its replicas, behind the routing
+ * DataSource that the rest of the application uses.  Only ReplicationStandIn talks to them
+ * directly.
+ */
+public class ReplicaDataSources implements DisposableBean {
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+
+    public ReplicaDataSources(HikariDataSource primary, List<HikariDataSource> replicas){
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    public HikariDataSource getPrimary(){
+        return primary;
+    }
+
+    public List<HikariDataSource> getReplicas(){
+        return replicas;
+    }
+
+    @Override
+    public void destroy(){
+        for(HikariDataSource replica : replicas){
+            replica.close();
+        }
+        primary.close();
+    }
+}
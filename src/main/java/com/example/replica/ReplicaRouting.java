@@ -0,0 +1,54 @@
+package com.example.replica;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Lets the current thread opt out of the replicas: while primary is forced, even read-only
+ * transactions get their connections from the primary database.
+ *
+ * ReplicaRoutingFilter forces the primary for write requests and for accounts that wrote
+ * recently.  The decision lives in a ThreadLocal, so taskDecorator() carries it over to work
+ * a request hands to another thread, such as the streamed body of GET /messages.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private ReplicaRouting(){
+    }
+
+    /**
+     * Sends every read of the current thread to the primary until clear() is called.
+     */
+    public static void forcePrimary(){
+        PRIMARY_FORCED.set(Boolean.TRUE);
+    }
+
+    public static void clear(){
+        PRIMARY_FORCED.remove();
+    }
+
+    public static boolean isPrimaryForced(){
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    /**
+     * @return - a decorator that runs a task with the routing of the thread that submitted it.
+     */
+    public static TaskDecorator taskDecorator(){
+        return task -> {
+            boolean forced = isPrimaryForced();
+            return () -> {
+                if(forced){
+                    forcePrimary();
+                }
+                try{
+                    task.run();
+                }
+                finally{
+                    clear();
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.replica;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands out connections from the primary database or from one of its replicas.
+ *
+ * A connection taken inside a @Transactional(readOnly = true) transaction comes from the
+ * replicas, in turn, unless the current thread has forced the primary (see ReplicaRouting).
+ * Everything else (writes, reads in a read-write transaction, work outside of a transaction)
+ * goes to the primary.
+ *
+ * The transaction manager asks for its connection before it marks the transaction read-only,
+ * so this must sit behind a LazyConnectionDataSourceProxy, which only takes the connection once
+ * the first statement runs.  Every decision is counted as db.routing.connections, tagged with
+ * the target.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final String[] replicaKeys;
+    private final AtomicInteger nextReplica = new AtomicInteger(); //round-robin position
+    private final Map<String, Counter> routed = new HashMap<>(); //target -> connections sent there
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, MeterRegistry meterRegistry){
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicaKeys = new String[replicas.size()];
+        for(int i = 0; i < replicas.size(); i++){
+            replicaKeys[i] = "replica-" + i;
+            targets.put(replicaKeys[i], replicas.get(i));
+        }
+        for(Object key : targets.keySet()){
+            routed.put((String) key, Counter.builder("db.routing.connections")
+                    .description("JDBC connections taken from each database")
+                    .tag("target", (String) key)
+                    .register(meterRegistry));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey(){
+        String key = PRIMARY;
+        if(replicaKeys.length > 0 && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReplicaRouting.isPrimaryForced()){
+            key = replicaKeys[Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.length)];
+        }
+        routed.get(key).increment();
+        return key;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.replica;
+
+import java.io.IOException;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Decides, per request, whether read-only transactions may use the replicas.
+ *
+ * Write requests (anything but GET, HEAD and OPTIONS) always read from the primary, so the
+ * checks they make before writing (does the account exist, is the username taken, ...) see
+ * the latest data.  A read request may name the account it is made for in the X-Account-Id
+ * header; if that account wrote recently (see RecentWriters), it reads from the primary too.
+ * All other reads go to the replicas.
+ *
+ * A successful write request that names its account also makes that account a recent writer.
+ */
+@Component
+@Profile("replica")
+public class ReplicaRoutingFilter extends OncePerRequestFilter {
+
+    public static final String ACCOUNT_HEADER = "X-Account-Id";
+
+    private final RecentWriters recentWriters;
+
+    public ReplicaRoutingFilter(RecentWriters recentWriters){
+        this.recentWriters = recentWriters;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean write = !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                || HttpMethod.OPTIONS.matches(request.getMethod()));
+        Integer accountId = accountId(request);
+        if(write || (accountId != null && recentWriters.wroteRecently(accountId))){
+            ReplicaRouting.forcePrimary();
+        }
+        try{
+            filterChain.doFilter(request, response);
+        }
+        finally{
+            ReplicaRouting.clear();
+            if(write && accountId != null && response.getStatus() < 400){
+                recentWriters.recordWrite(accountId);
+            }
+        }
+    }
+
+    private static Integer accountId(HttpServletRequest request){
+        String header = request.getHeader(ACCOUNT_HEADER);
+        if(header == null){
+            return null;
+        }
+        try{
+            return Integer.valueOf(header.trim());
+        }
+        catch(NumberFormatException e){
+            return null; //not an account we can route for; the request itself is unaffected
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.replica;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Stands in for database replication, so the "replica" profile can run against in-memory H2
+ * databases.  A real deployment would get its replicas from the database itself and drop this
+ * class.
+ *
+ * Every replica starts empty: it gets the schema from db/reset.sql and db/schema, and then
+ * everything the primary holds.  From then on the change log that ChangeLogTrigger fills on
+ * the primary is read every app.replica.poll-interval.  Each change is held back for
+ * app.replica.lag, to behave like a replica that is a little behind, and then the current
+ * state of its row is copied from the primary to every replica (or the row is deleted there,
+ * if it's gone from the primary).
+ *
+ * Entries are removed from the log as they are read, rather than read up to the highest
+ * sequence number seen, since transactions commit out of order: an entry with a lower number
+ * can still turn up later.
+ *
+ * After every batch a RowsReplicated event is published for each table.
+ */
+@Component
+@Profile("replica")
+@DependsOnDatabaseInitialization //the primary must have its schema, test data and change log first
+public class ReplicationStandIn implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationStandIn.class);
+
+    /**
+     * The replicated tables and their primary keys, parents before the tables referencing them.
+     */
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+    static {
+        TABLES.put("account", "accountId");
+        TABLES.put("message", "messageId");
+    }
+
+    private static final int CHUNK_SIZE = 500; //rows per "in (...)" lookup
+
+    private final JdbcTemplate primary;
+    private final List<JdbcTemplate> replicas = new ArrayList<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final long lagNanos;
+    private final ArrayDeque<Change> pending = new ArrayDeque<>(); //read from the log, not yet applied; replication thread only
+    private volatile int pendingCount = 0;
+    private final ScheduledExecutorService replication = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replication-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicationStandIn(ReplicaDataSources dataSources, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                              @Value("${app.replica.lag}") Duration lag,
+                              @Value("${app.replica.poll-interval}") Duration pollInterval) throws IOException {
+        this.primary = new JdbcTemplate(dataSources.getPrimary());
+        this.eventPublisher = eventPublisher;
+        this.lagNanos = lag.toNanos();
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(schemaScripts());
+        for(DataSource replica : dataSources.getReplicas()){
+            schema.execute(replica);
+            replicas.add(new JdbcTemplate(replica));
+        }
+        Gauge.builder("replica.replication.pending", this, standIn -> standIn.pendingCount)
+                .description("Row changes committed on the primary and not yet copied to the replicas")
+                .register(meterRegistry);
+
+        readLog();
+        apply(System.nanoTime()); //the replicas start out with everything, without waiting for the lag
+        long period = pollInterval.toMillis();
+        replication.scheduleWithFixedDelay(this::replicate, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private static Resource[] schemaScripts() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        Resource[] scripts = resolver.getResources("classpath:db/schema/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(Resource::getFilename));
+        List<Resource> all = new ArrayList<>();
+        all.add(resolver.getResource("classpath:db/reset.sql"));
+        all.addAll(Arrays.asList(scripts));
+        return all.toArray(new Resource[0]);
+    }
+
+    private void replicate(){
+        try{
+            readLog();
+            apply(System.nanoTime() - lagNanos);
+        }
+        catch(RuntimeException e){
+            log.warn("Replication failed, retrying on the next poll", e); //changes stay pending until they are applied
+        }
+    }
+
+    /**
+     * Moves the committed entries of the change log into the pending queue.
+     */
+    private void readLog(){
+        List<Object[]> entries = primary.query("select seq, tableName, rowId from replication_log order by seq",
+                (row, rowNum) -> new Object[]{row.getLong(1), row.getString(2), row.getInt(3)});
+        if(entries.isEmpty()){
+            return;
+        }
+        long now = System.nanoTime();
+        List<Object[]> seqs = new ArrayList<>(entries.size());
+        for(Object[] entry : entries){
+            pending.add(new Change((String) entry[1], (Integer) entry[2], now));
+            seqs.add(new Object[]{entry[0]});
+        }
+        primary.batchUpdate("delete from replication_log where seq = ?", seqs);
+        pendingCount = pending.size();
+    }
+
+    /**
+     * Copies the rows of every pending change seen by "due" to the replicas.
+     */
+    private void apply(long due){
+        Map<String, Set<Integer>> changed = new LinkedHashMap<>();
+        for(String table : TABLES.keySet()){
+            changed.put(table, new LinkedHashSet<>());
+        }
+        int count = 0;
+        for(Change change : pending){
+            if(change.seenNanos - due > 0){
+                break;
+            }
+            Set<Integer> ids = changed.get(change.table);
+            if(ids != null){
+                ids.add(change.rowId);
+            }
+            count++;
+        }
+        if(count == 0){
+            return;
+        }
+
+        //Inserts and updates parents first, deletes children first, so foreign keys always hold
+        Map<String, Set<Integer>> deleted = new LinkedHashMap<>();
+        for(Map.Entry<String, Set<Integer>> entry : changed.entrySet()){
+            if(!entry.getValue().isEmpty()){
+                deleted.put(entry.getKey(), copy(entry.getKey(), entry.getValue()));
+            }
+        }
+        List<String> tables = new ArrayList<>(deleted.keySet());
+        Collections.reverse(tables);
+        for(String table : tables){
+            Set<Integer> ids = deleted.get(table);
+            if(!ids.isEmpty()){
+                List<Object[]> keys = ids.stream().map(id -> new Object[]{id}).toList();
+                for(JdbcTemplate replica : replicas){
+                    replica.batchUpdate("delete from " + table + " where " + TABLES.get(table) + " = ?", keys);
+                }
+            }
+        }
+        for(int i = 0; i < count; i++){
+            pending.poll(); //only now, so a failed attempt is retried
+        }
+        pendingCount = pending.size();
+        for(Map.Entry<String, Set<Integer>> entry : changed.entrySet()){
+            if(!entry.getValue().isEmpty()){
+                eventPublisher.publishEvent(new RowsReplicated(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Writes the current primary version of the given rows to every replica.
+     * @return - the ids that no longer exist on the primary, which are still to be deleted
+     */
+    private Set<Integer> copy(String table, Set<Integer> ids){
+        String key = TABLES.get(table);
+        Set<Integer> missing = new HashSet<>(ids);
+        List<Integer> all = new ArrayList<>(ids);
+        for(int from = 0; from < all.size(); from += CHUNK_SIZE){
+            List<Integer> chunk = all.subList(from, Math.min(from + CHUNK_SIZE, all.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            List<Map<String, Object>> rows = primary.queryForList("select * from " + table + " where " + key + " in (" + placeholders + ")", chunk.toArray());
+            if(rows.isEmpty()){
+                continue;
+            }
+            List<String> columns = new ArrayList<>(rows.get(0).keySet());
+            String merge = "merge into " + table + " (" + String.join(",", columns) + ") key (" + key + ") values ("
+                    + String.join(",", Collections.nCopies(columns.size(), "?")) + ")";
+            List<Object[]> values = new ArrayList<>(rows.size());
+            for(Map<String, Object> row : rows){
+                Object[] value = new Object[columns.size()];
+                for(int c = 0; c < columns.size(); c++){
+                    value[c] = row.get(columns.get(c));
+                }
+                values.add(value);
+                missing.remove(((Number) row.get(key)).intValue());
+            }
+            for(JdbcTemplate replica : replicas){
+                replica.batchUpdate(merge, values);
+            }
+        }
+        return missing;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        replication.shutdownNow();
+        replication.awaitTermination(1, TimeUnit.SECONDS); //before the pools it uses are closed
+    }
+
+    private record Change(String table, int rowId, long seenNanos) {
+    }
+}
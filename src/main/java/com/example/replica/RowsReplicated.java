@@ -0,0 +1,13 @@
+package com.example.replica;
+
+import java.util.Set;
+
+/**
+ * Published by ReplicationStandIn once changed rows have been copied to every replica.
+ * Anything that was filled from a replica before then (cached entities, ETags handed out to
+ * clients) may hold the old rows and can be refreshed now.
+ * @param table - the table the rows belong to, in lowercase
+ * @param ids - the primary keys of the rows, deleted rows included
+ */
+public record RowsReplicated(String table, Set<Integer> ids) {
+}
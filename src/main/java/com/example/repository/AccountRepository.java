@@ -1,9 +1,20 @@
 package com.example.repository;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.example.entity.Account;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 /**
  * The Account Repository class will be in charge with interacting directly with the database.
  * This includes adding accounts to the database, checking to see if info is valid,
@@ -34,4 +45,37 @@ public interface AccountRepository extends JpaRepository<Account, Integer> { //"
        * the "log-in" feature. 
        */
       public Account findByUsernameAndPassword(String username, String password);
+
+      /**
+       * Out of the given ids, returns the ones that belong to an existing account.  This lets
+       * us validate the postedBy of a whole batch of messages with one set-based query
+       * instead of one existsById() call per message.
+       */
+      @Query("select a.accountId from Account a where a.accountId in :ids")
+      public Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+      /**
+       * Streams the username and accountId of every account without hydrating full Account
+       * entities.  Used to warm the in-memory username index at startup; the caller must
+       * consume the stream inside a transaction.
+       */
+      @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+      @Query("select a.accountId as accountId, a.username as username from Account a")
+      public Stream<UsernameEntry> streamUsernames();
+
+      /**
+       * Streams the accountId of every account.  Used to load the in-memory account-existence
+       * set at startup; the caller must consume the stream inside a transaction.
+       */
+      @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+      @Query("select a.accountId from Account a")
+      public Stream<Integer> streamAccountIds();
+
+      /**
+       * Read-only projection holding just the two columns the username index needs.
+       */
+      interface UsernameEntry {
+          Integer getAccountId();
+          String getUsername();
+      }
 }
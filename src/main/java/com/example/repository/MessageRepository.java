@@ -1,18 +1,151 @@
 package com.example.repository;
 import java.util.*;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.dto.MessageView;
 import com.example.entity.Message;
+import com.example.shard.FanOut;
+import com.example.shard.ShardKey;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /**
  * This class will be a repository that deals with the "message" table of our database.
  * It will be directly responsible for processing interactions with the database.
+ *
+ * With the "sharded" profile the messages are spread over several databases by postedBy.
+ * Every method then needs to say where it runs: @ShardKey on the postedBy parameter of the
+ * methods about one account, @FanOut on the ones that need every shard (see
+ * ShardingInterceptor).  The annotations have no effect without that profile.
  */
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Integer> {
 
-    List<Message> findByPostedBy(int accountId);
+    /**
+     * The select clause shared by the list queries below.  It builds MessageView records
+     * straight from the columns, so the rows never become managed entities.
+     */
+    String MESSAGE_VIEW = "select new com.example.dto.MessageView(m.messageId, m.postedBy, m.messageText, m.timePostedEpoch)"
+            + " from Message m";
+
+    /**
+     * The first page of a user's timeline, newest messages first.  The ordering matches the
+     * (postedBy, timePostedEpoch desc, messageId desc) index so the database reads the rows
+     * straight off the index instead of scanning and sorting the whole message table.
+     * @param accountId - the account whose messages are wanted
+     * @param pageable - carries the page size, or Pageable.unpaged() for every message
+     */
+    @Query(MESSAGE_VIEW + " where m.postedBy = :accountId order by m.timePostedEpoch desc, m.messageId desc")
+    List<MessageView> findTimeline(@ShardKey @Param("accountId") int accountId, Pageable pageable);
+
+    /**
+     * The following pages of a user's timeline.  "before" and "beforeId" are the
+     * timePostedEpoch and messageId of the last message the client has already seen, so the
+     * query seeks into the index right after it.
+     */
+    @Query(MESSAGE_VIEW + " where m.postedBy = :accountId"
+            + " and (m.timePostedEpoch < :before or (m.timePostedEpoch = :before and m.messageId < :beforeId))"
+            + " order by m.timePostedEpoch desc, m.messageId desc")
+    List<MessageView> findTimelineBefore(@ShardKey @Param("accountId") int accountId, @Param("before") long before,
+            @Param("beforeId") int beforeId, Pageable pageable);
+
+    /**
+     * The first page of a user's messages posted in the time window [since, until), newest
+     * first.  Served by the same (postedBy, timePostedEpoch desc, messageId desc) index as the
+     * timeline, which here is read as a range instead of from the top.  H2 only recognizes
+     * that the range is already in index order when the order by starts with postedBy too,
+     * even though it is fixed; without it the whole window is sorted before the limit applies.
+     */
+    @Query(MESSAGE_VIEW + " where m.postedBy = :accountId and m.timePostedEpoch >= :since and m.timePostedEpoch < :until"
+            + " order by m.postedBy, m.timePostedEpoch desc, m.messageId desc")
+    List<MessageView> findTimelineBetween(@ShardKey @Param("accountId") int accountId, @Param("since") long since, @Param("until") long until,
+            Pageable pageable);
+
+    /**
+     * The following pages of a user's time window, continuing right after (before, beforeId).
+     * The window bounds are repeated next to the cursor so the database still knows the full
+     * index range to read.
+     */
+    @Query(MESSAGE_VIEW + " where m.postedBy = :accountId and m.timePostedEpoch >= :since and m.timePostedEpoch < :until"
+            + " and (m.timePostedEpoch < :before or (m.timePostedEpoch = :before and m.messageId < :beforeId))"
+            + " order by m.postedBy, m.timePostedEpoch desc, m.messageId desc")
+    List<MessageView> findTimelineBetweenBefore(@ShardKey @Param("accountId") int accountId, @Param("since") long since, @Param("until") long until,
+            @Param("before") long before, @Param("beforeId") int beforeId, Pageable pageable);
+
+    /**
+     * The first page of every message posted in the time window [since, until), oldest first.
+     * The ordering matches the (timePostedEpoch, messageId) index, so the database reads just
+     * the window's range of it instead of scanning the message table.
+     */
+    @Query(MESSAGE_VIEW + " where m.timePostedEpoch >= :since and m.timePostedEpoch < :until"
+            + " order by m.timePostedEpoch, m.messageId")
+    @FanOut(FanOut.Merge.BY_TIME_POSTED)
+    List<MessageView> findBetween(@Param("since") long since, @Param("until") long until, Pageable pageable);
+
+    /**
+     * The following pages of a time window.  "since" and "afterId" are the timePostedEpoch and
+     * messageId of the last message the client has already seen, so the query seeks into the
+     * index right after it.
+     */
+    @Query(MESSAGE_VIEW + " where m.timePostedEpoch >= :since and m.timePostedEpoch < :until"
+            + " and (m.timePostedEpoch > :since or m.messageId > :afterId)"
+            + " order by m.timePostedEpoch, m.messageId")
+    @FanOut(FanOut.Merge.BY_TIME_POSTED)
+    List<MessageView> findBetweenAfter(@Param("since") long since, @Param("afterId") int afterId, @Param("until") long until,
+            Pageable pageable);
+
+    /**
+     * Keyset ("seek") pagination over the primary key.  Instead of an OFFSET, which makes
+     * the database walk and throw away every earlier row, we ask for the rows that come
+     * right after the last messageId the client has already seen.  The primary key index
+     * lets the database jump straight to that point.
+     * @param after - the last messageId seen by the client (exclusive)
+     * @param pageable - carries the page size; only the limit is used
+     * @return at most pageable.getPageSize() messages, in ascending messageId order
+     */
+    @Query(MESSAGE_VIEW + " where m.messageId > :after order by m.messageId")
+    @FanOut(FanOut.Merge.BY_MESSAGE_ID)
+    List<MessageView> findPageAfter(@Param("after") int after, Pageable pageable);
+
+    /**
+     * Streams every message in ascending messageId order instead of materializing them
+     * into a list.  The caller must consume (and close) the stream inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(MESSAGE_VIEW + " order by m.messageId")
+    @FanOut(FanOut.Merge.BY_MESSAGE_ID)
+    Stream<MessageView> streamAll();
+
+    /**
+     * Replaces the text of a message with a single UPDATE, without loading the entity first.
+     * @return the number of rows updated: 1 if the message exists, 0 if it doesn't
+     */
+    @Modifying
+    @Transactional
+    @FanOut(FanOut.Merge.SUM)
+    @Query("update Message m set m.messageText = :messageText where m.messageId = :messageId")
+    int updateMessageText(@Param("messageId") int messageId, @Param("messageText") String messageText);
+
+    /**
+     * Deletes a message with a single DELETE, without loading the entity first
+     * (deleteById() would select it before removing it).
+     * @return the number of rows deleted: 1 if the message existed, 0 if it didn't
+     */
+    @Modifying
+    @Transactional
+    @FanOut(FanOut.Merge.SUM)
+    @Query("delete from Message m where m.messageId = :messageId")
+    int deleteMessage(@Param("messageId") int messageId);
 
 }
@@ -0,0 +1,368 @@
+package com.example.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.dto.MessageView;
+import com.example.repository.MessageRepository;
+import com.example.stream.MessageEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * This class is an in-memory inverted index over messageText, answering GET /messages/search
+ * without a "like '%...%'" scan of the message table.
+ *
+ * Every message is split into lowercase terms (runs of letters and digits), and every term
+ * maps to the set of messages that contain it.  A search looks up the rarest query term and
+ * checks each of its messages for the other terms, so the work depends on how many messages
+ * match rather than on the size of the table.  Matches are ranked with BM25: rare terms and
+ * terms repeated in a short message count the most; ties go to the newest message.
+ *
+ * The index is loaded from the database once the application has started and is kept up to
+ * date from the MessageEvents that MessageService publishes after every committed change.
+ * Results are served from the index itself, so a search costs no database queries at all.
+ *
+ * Searches hold the read lock while they score, which takes a while for a common term.  So
+ * that a request that changed a message never waits for them, the events are only queued
+ * where they are published; a single indexer thread applies them, in order, under the write
+ * lock.  A change therefore shows up in searches shortly after it is committed rather than
+ * immediately (messages.search.pending counts the events still queued).
+ *
+ * The "reactive" profile writes messages without MessageService, so the index (and the
+ * endpoint) aren't available there.
+ */
+@Component
+@Profile("!reactive") //Served by SocialMediaController, which has the same profile
+public class MessageSearchIndex implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    /**
+     * Queries with more terms than this are refused, since every term adds a lookup per match.
+     */
+    public static final int MAX_QUERY_TERMS = 16;
+
+    private static final double K1 = 1.2; //BM25: how quickly repeating a term stops adding to the score
+    private static final double B = 0.75; //BM25: how much longer messages are penalized
+
+    private final MessageRepository messageRepository;
+    private final Map<String, Set<Document>> postings = new HashMap<>(); //term -> messages containing it
+    private final Map<Integer, Document> documents = new HashMap<>(); //messageId -> indexed message
+    private long totalTerms = 0; //sum of all document lengths, for the average BM25 normalizes by
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LinkedBlockingQueue<MessageEvent> pending = new LinkedBlockingQueue<>(); //committed changes not yet applied
+    private final Thread indexer = new Thread(this::applyPending, "message-search-indexer");
+    private volatile boolean warm = false;
+
+    public MessageSearchIndex(MessageRepository messageRepository, MeterRegistry meterRegistry){
+        this.messageRepository = messageRepository;
+        Gauge.builder("messages.search.documents", this, MessageSearchIndex::documentCount)
+                .description("Messages in the in-memory search index")
+                .register(meterRegistry);
+        Gauge.builder("messages.search.terms", this, MessageSearchIndex::termCount)
+                .description("Distinct terms in the in-memory search index")
+                .register(meterRegistry);
+        Gauge.builder("messages.search.pending", pending, LinkedBlockingQueue::size)
+                .description("Committed message changes not yet applied to the search index")
+                .register(meterRegistry);
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * Loads every existing message once the application is up.  The write lock is held for
+     * the whole load, so changes committed meanwhile wait in the queue and are applied on top of it; the
+     * ones committed just before it are already in what we read, and applying them again
+     * changes nothing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp(){
+        lock.writeLock().lock();
+        try(Stream<MessageView> messages = messageRepository.streamAll()){
+            messages.forEach(this::index);
+            warm = true;
+        }
+        finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queues a committed change for the indexer thread.  This runs on the thread that made the
+     * change, so it must never wait for the lock.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageEvent(MessageEvent event){
+        pending.add(event);
+    }
+
+    /**
+     * The indexer thread: applies the queued changes, everything queued so far under one
+     * acquisition of the write lock.
+     */
+    private void applyPending(){
+        List<MessageEvent> events = new ArrayList<>();
+        while(true){
+            try{
+                events.add(pending.take());
+            }
+            catch(InterruptedException e){
+                return; //shutting down
+            }
+            pending.drainTo(events);
+            lock.writeLock().lock();
+            try{
+                for(MessageEvent event : events){
+                    apply(event);
+                }
+            }
+            catch(RuntimeException e){
+                log.error("Applying {} changes to the search index failed", events.size(), e);
+            }
+            finally{
+                lock.writeLock().unlock();
+            }
+            events.clear();
+        }
+    }
+
+    /**
+     * Applies one committed change to the index.  Callers hold the write lock.
+     */
+    private void apply(MessageEvent event){
+        MessageView message = event.message();
+        switch(event.type()){
+            case created -> index(message);
+            case updated -> {
+                Document old = documents.get(message.messageId());
+                if(old != null){
+                    index(new MessageView(old.message.messageId(), old.message.postedBy(), message.messageText(), old.message.timePostedEpoch()));
+                }
+            }
+            case deleted -> remove(message.messageId());
+        }
+    }
+
+    @Override
+    public void destroy(){
+        indexer.interrupt();
+    }
+
+    /**
+     * @return - true once the index has been loaded and its answers can be trusted.
+     */
+    public boolean isWarm(){
+        return warm;
+    }
+
+    /**
+     * Finds the messages that contain every term of the query, best match first.
+     * @param query - free text; it is split into terms the same way messageText is
+     * @param offset - how many of the best matches to skip
+     * @param limit - the maximum number of messages to return
+     * @return - the requested slice of the ranked matches and the total number of matches
+     */
+    public SearchResult search(String query, int offset, int limit){
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if(terms.isEmpty()){
+            return new SearchResult(List.of(), 0);
+        }
+        lock.readLock().lock();
+        try{
+            String[] queryTerms = terms.toArray(new String[0]);
+            double[] idf = new double[queryTerms.length];
+            Set<Document> rarest = null;
+            for(int t = 0; t < queryTerms.length; t++){
+                Set<Document> list = postings.get(queryTerms[t]);
+                if(list == null){
+                    return new SearchResult(List.of(), 0); //a term no message contains
+                }
+                if(rarest == null || list.size() < rarest.size()){
+                    rarest = list;
+                }
+                double df = list.size();
+                idf[t] = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+            }
+            double averageLength = (double) totalTerms / documents.size();
+
+            //Keeps the best offset + limit matches, worst of them at the head.
+            int keep = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<ScoredDocument> best = new PriorityQueue<>(Math.min(keep, 1024) + 1, RANKING.reversed());
+            int total = 0;
+            for(Document document : rarest){
+                double score = 0;
+                for(int t = 0; t < queryTerms.length && score >= 0; t++){
+                    Integer frequency = document.termFrequencies.get(queryTerms[t]);
+                    if(frequency == null){
+                        score = -1; //missing a term: not a match
+                    }
+                    else{
+                        score += idf[t] * frequency * (K1 + 1)
+                                / (frequency + K1 * (1 - B + B * document.length / averageLength));
+                    }
+                }
+                if(score < 0){
+                    continue;
+                }
+                total++;
+                if(best.size() == keep && !beats(score, document.message, best.peek())){
+                    continue; //can't make the page, so don't allocate for it
+                }
+                best.offer(new ScoredDocument(document.message, score));
+                if(best.size() > keep){
+                    best.poll();
+                }
+            }
+
+            List<ScoredDocument> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            List<MessageView> page = new ArrayList<>(Math.min(limit, Math.max(0, ranked.size() - offset)));
+            for(int i = offset; i < ranked.size(); i++){
+                page.add(ranked.get(i).message);
+            }
+            return new SearchResult(page, total);
+        }
+        finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lowercase terms: maximal runs of letters and digits.
+     */
+    public static List<String> tokenize(String text){
+        if(text == null){
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        for(int i = 0; i < text.length(); ){
+            int codePoint = text.codePointAt(i);
+            if(Character.isLetterOrDigit(codePoint)){
+                term.appendCodePoint(codePoint);
+            }
+            else if(term.length() > 0){
+                terms.add(term.toString().toLowerCase(Locale.ROOT));
+                term.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if(term.length() > 0){
+            terms.add(term.toString().toLowerCase(Locale.ROOT));
+        }
+        return terms;
+    }
+
+    /**
+     * Adds a message, replacing whatever was indexed under its messageId before.
+     * Callers hold the write lock.
+     */
+    private void index(MessageView message){
+        remove(message.messageId());
+        Document document = new Document(message, tokenize(message.messageText()));
+        documents.put(message.messageId(), document);
+        totalTerms += document.length;
+        for(String term : document.termFrequencies.keySet()){
+            postings.computeIfAbsent(term, t -> new HashSet<>()).add(document);
+        }
+    }
+
+    /**
+     * Removes a message from the index, if it is there.  Callers hold the write lock.
+     */
+    private void remove(int messageId){
+        Document document = documents.remove(messageId);
+        if(document == null){
+            return;
+        }
+        totalTerms -= document.length;
+        for(String term : document.termFrequencies.keySet()){
+            Set<Document> list = postings.get(term);
+            list.remove(document);
+            if(list.isEmpty()){
+                postings.remove(term);
+            }
+        }
+    }
+
+    private double documentCount(){
+        lock.readLock().lock();
+        try{
+            return documents.size();
+        }
+        finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    private double termCount(){
+        lock.readLock().lock();
+        try{
+            return postings.size();
+        }
+        finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of search results.
+     * @param messages - the matching messages on this page, best match first
+     * @param total - how many messages matched altogether
+     */
+    public record SearchResult(List<MessageView> messages, int total) {
+    }
+
+    private static boolean beats(double score, MessageView message, ScoredDocument worst){
+        return score > worst.score || (score == worst.score && message.messageId() > worst.message.messageId());
+    }
+
+    private static final Comparator<ScoredDocument> RANKING = Comparator.comparingDouble(ScoredDocument::score).reversed()
+            .thenComparing(Comparator.comparingInt((ScoredDocument scored) -> scored.message.messageId()).reversed());
+
+    private record ScoredDocument(MessageView message, double score) {
+    }
+
+    /**
+     * An indexed message and how often each of its terms occurs in it.  Documents are compared
+     * by identity, so a replaced version of a message is never mistaken for the current one.
+     */
+    private static final class Document {
+        private final MessageView message;
+        private final Map<String, Integer> termFrequencies = new HashMap<>();
+        private final int length; //number of terms, repeats included
+
+        Document(MessageView message, List<String> terms){
+            this.message = message;
+            this.length = terms.size();
+            for(String term : terms){
+                termFrequencies.merge(term, 1, Integer::sum);
+            }
+        }
+    }
+}
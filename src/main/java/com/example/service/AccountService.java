@@ -1,11 +1,16 @@
 package com.example.service;
 
 import com.example.repository.AccountRepository;
+import com.example.cache.AccountIdSet;
+import com.example.cache.UsernameIndex;
 import com.example.entity.Account;
 import com.example.exception.DuplicateUsernameException;
 import com.example.exception.InvalidCredentialsException;
 
+import java.util.Optional;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 /**
@@ -23,6 +28,17 @@ public class AccountService {
      */
     private AccountRepository accountRepository; 
 
+    /**
+     * In-memory index of existing usernames, so most registrations can skip the
+     * duplicate-username query entirely.
+     */
+    private UsernameIndex usernameIndex;
+
+    /**
+     * In-memory set of existing accountIds, which MessageService checks new messages against.
+     */
+    private AccountIdSet accountIds;
+
     /**
      * Every time an AccountService class is created, we also have access to the
      * methods available in the AccountRepository interface through dependency
@@ -30,8 +46,10 @@ public class AccountService {
      * in order for Spring to know where to inject AccountRepository.   
      */
      @Autowired
-    public AccountService(AccountRepository accountRepository){
+    public AccountService(AccountRepository accountRepository, UsernameIndex usernameIndex, AccountIdSet accountIds){
         this.accountRepository = accountRepository;
+        this.usernameIndex = usernameIndex;
+        this.accountIds = accountIds;
     }
     
 
@@ -53,12 +71,23 @@ public class AccountService {
 
     /**
      * This method checks if the provided username already exists in the database.
-     * It uses an instance of hte accountRepository to call its
+     * The in-memory username index is asked first: it can tell us that a username is
+     * definitely free, or that it is already taken, without touching the database.
+     * Only when the index can't give a definite answer (it isn't warm yet, or the Bloom
+     * filter reported a false positive) do we use the accountRepository's
      * "findByUsername" method, which Spring automatically implements for us. 
      * @param username - Username to be searched in the database
      * @return true if the username exists in the database, false otherwise.
      */
     public boolean isDuplicateUsername(String username){
+        if(usernameIndex.isWarm()){
+            if(!usernameIndex.mightBeTaken(username)){
+                return false;
+            }
+            if(usernameIndex.accountIdOf(username) != null){
+                return true;
+            }
+        }
         if(accountRepository.findByUsername(username) != null){
             return true;
         }
@@ -72,14 +101,29 @@ public class AccountService {
      * the "meetsRequirements()" method, as well as the "isDuplicateUsername()" method
      * in oder to make sure that the accounts information is able to be added
      * to the database.  If not, we throw custom exceptions that will be handled
-     * in the controller class.
+     * in the controller class.  Two registrations racing for the same username can
+     * both pass the duplicate check, so when the insert breaks a constraint we look the
+     * username up again: if it is taken now, the losing insert is reported as a duplicate
+     * username too.  Any other violation (a clashing accountId, a column that is too long)
+     * is passed on as it is.  Either way the rejected account gets no accountId.
      * @param account - the account to be verified
      * @return nothing, just add account to DB if requirements are met
      */
     public void addAccount(Account account){
         if(meetsRequirements(account.getUsername(), account.getPassword()) == true){
             if(isDuplicateUsername(account.getUsername()) == false){
-                accountRepository.save(account);
+                try{
+                    accountRepository.save(account);
+                }
+                catch(DataIntegrityViolationException e){
+                    account.setAccountId(null); //assigned before the insert failed
+                    if(accountRepository.findByUsername(account.getUsername()) != null){
+                        throw new DuplicateUsernameException("Username already exists in the database");
+                    }
+                    throw e;
+                }
+                usernameIndex.record(account.getUsername(), account.getAccountId());
+                accountIds.add(account.getAccountId());
             }
             else{
                 throw new DuplicateUsernameException("Username already exists in the database");
@@ -98,11 +142,23 @@ public class AccountService {
      * @return true if username and password exist in the database, false otherwise.
      */
     public boolean credentialsExist(Account account){
-        if(accountRepository.findByUsernameAndPassword(account.getUsername(), account.getPassword()) != null){
+        if(login(account).isPresent()){
             return true;
         }
         else{
             return false;
         }
     }
+
+    /**
+     * This method logs a user in.  It looks the account up by username and password in a
+     * single query (username is unique, so this is an indexed lookup) and hands back the
+     * account that was found, so the caller doesn't need a second query to build its response.
+     * @param account - Account object with a username and password to check
+     * @return the matching account including its accountId, or an empty Optional if the
+     * credentials don't match any account.
+     */
+    public Optional<Account> login(Account account){
+        return Optional.ofNullable(accountRepository.findByUsernameAndPassword(account.getUsername(), account.getPassword()));
+    }
 }
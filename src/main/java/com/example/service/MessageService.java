@@ -1,24 +1,79 @@
 package com.example.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.cache.AccountIdSet;
+import com.example.cache.MessageCache;
+import com.example.cache.MessageVersions;
+import com.example.dto.BatchMessageResult;
+import com.example.dto.MessageView;
+import com.example.dto.MessageViewSerializer;
 import com.example.entity.Message;
+import com.example.exception.WriteBehindUnavailableException;
+import com.example.replica.ReplicaRouting;
+import com.example.replica.RowsReplicated;
 import com.example.repository.AccountRepository;
 import com.example.repository.MessageRepository;
+import com.example.stream.MessageEvent;
+import com.example.writebehind.MessageWriteBehind;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 //This class, like the AccountService class, will communicate with the MessageRepository class to perform operations.
 
 @Service //Indicates to Spring that this is a service-layer bean.
 public class MessageService {
 
+    /**
+     * The largest page a client may ask for in a single keyset-paginated request.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * The largest number of messages that can be submitted in one batch.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private MessageRepository messageRepository; //Reference to MessageRepository interface to let Spring know what to inject
     private AccountRepository accountRepository; //Reference to AccountRepository interface
+    private AccountIdSet accountIds; //In-memory set of existing accountIds, asked before the database
+    private ObjectMapper objectMapper; //Spring's configured ObjectMapper, used when we write JSON ourselves
+    private MessageCache messageCache; //Read-through cache in front of lookups by messageId
+    private TransactionTemplate transactionTemplate; //Lets us run work in a transaction and act after it commits
+    private MessageVersions messageVersions; //Version counters behind the ETags, bumped after every committed change
+    private ApplicationEventPublisher eventPublisher; //Announces committed changes, e.g. to GET /messages/stream
+    private MessageWriteBehind writeBehind; //Queues new messages instead of inserting them ("write-behind" profile), null otherwise
 
     @Autowired //Whenever an instance of this class is created, Spring will also implement an instance of the messageRepository class.
-    public MessageService(MessageRepository messageRepository, AccountRepository accountRepository){
+    public MessageService(MessageRepository messageRepository, AccountRepository accountRepository, AccountIdSet accountIds, ObjectMapper objectMapper, MessageCache messageCache, TransactionTemplate transactionTemplate, MessageVersions messageVersions, ApplicationEventPublisher eventPublisher, ObjectProvider<MessageWriteBehind> writeBehind){
         this.messageRepository = messageRepository;
         this.accountRepository = accountRepository;  
+        this.accountIds = accountIds;
+        this.objectMapper = objectMapper;
+        this.messageCache = messageCache;
+        this.transactionTemplate = transactionTemplate;
+        this.messageVersions = messageVersions;
+        this.eventPublisher = eventPublisher;
+        this.writeBehind = writeBehind.getIfAvailable();
     }
 
     /**
@@ -38,16 +93,273 @@ public class MessageService {
 
     /**
      * We also need a method to check that "postedBy" attribute associated with a message refers to a real, existing
-     * user in the database.  We can leverage the AccountService class here to check that. 
+     * user in the database.  The in-memory set of accountIds answers for every account it knows,
+     * so only a postedBy it doesn't know (normally a bad one) costs a query.
      * @param - a message object containing it's information.
      * @return - true if the given message is associated with a user, false if not
      */
     public boolean postedByCheck(Message message){
+        if(accountIds.contains(message.getPostedBy())){
+            return true;
+        }
         if(accountRepository.existsById(message.getPostedBy())){ //postedBy references accountID (foreign key)
+            accountIds.add(message.getPostedBy()); //an account the set hadn't heard of
             return true;
         }
         else{
             return false;
         }
     }
+
+    /**
+     * Looks up a message by its id, going through the message cache first so that hot
+     * messages don't cost a database round-trip.  In write-behind mode a message that is still
+     * queued is answered from the queue.  A request that has to read from the primary (see
+     * ReplicaRouting) skips the cache, which may hold a copy read from a replica that was behind.
+     * @param messageId - the primary key of the message
+     * @return - the message, or an empty Optional if no message has that id
+     */
+    public Optional<Message> getMessageById(int messageId){
+        if(writeBehind != null){
+            Message queued = writeBehind.pending(messageId);
+            if(queued != null){
+                return Optional.of(queued);
+            }
+        }
+        if(ReplicaRouting.isPrimaryForced()){
+            return messageRepository.findById(messageId);
+        }
+        return messageCache.get(messageId, id -> messageRepository.findById(id));
+    }
+
+    /**
+     * Persists a new message (which should already have passed meetsRequirements() and
+     * postedByCheck()) and puts it in the message cache.  In write-behind mode the message is
+     * only queued, and stored a little later (see MessageWriteBehind).
+     * @param message - the message to save, without a messageId
+     * @return - the saved message, including its generated messageId
+     * @throws WriteBehindUnavailableException - in write-behind mode, if the queue is full
+     */
+    public Message submitMessage(Message message){
+        if(writeBehind != null){
+            return writeBehind.submit(message);
+        }
+        Message savedMessage = messageRepository.save(message);
+        messageCache.put(savedMessage);
+        messageVersions.messageChanged(savedMessage.getMessageId());
+        eventPublisher.publishEvent(MessageEvent.created(viewOf(savedMessage)));
+        return savedMessage;
+    }
+
+    /**
+     * Persists a batch of messages, checking each one against the same rules as a single
+     * submission.  The postedBy ids of the whole batch are validated with one query, and the
+     * valid messages are inserted in a single transaction so Hibernate can send them to the
+     * database in JDBC batches.  Invalid messages are skipped and reported; they don't stop
+     * the rest of the batch.
+     * @param messages - the messages to save, at most MAX_BATCH_SIZE of them
+     * @return - one result per submitted message, in the same order
+     */
+    public List<BatchMessageResult> submitMessages(List<Message> messages){
+        Set<Integer> existingAccounts = new HashSet<>();
+        Set<Integer> unknownIds = new HashSet<>(); //not in the set of accountIds, so asked of the database
+        for(Message message : messages){
+            if(message != null && message.getPostedBy() != null){
+                if(accountIds.contains(message.getPostedBy())){
+                    existingAccounts.add(message.getPostedBy());
+                }
+                else{
+                    unknownIds.add(message.getPostedBy());
+                }
+            }
+        }
+        if(!unknownIds.isEmpty()){
+            for(Integer accountId : accountRepository.findExistingIds(unknownIds)){
+                existingAccounts.add(accountId);
+                accountIds.add(accountId); //found in the database, so the next batch needn't ask
+            }
+        }
+
+        BatchMessageResult[] results = new BatchMessageResult[messages.size()];
+        List<Message> validMessages = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for(int i = 0; i < messages.size(); i++){
+            Message message = messages.get(i);
+            if(message == null || message.getMessageText() == null || !meetsRequirements(message.getMessageText())){
+                results[i] = BatchMessageResult.rejected(i, "messageText must be between 1 and 255 characters");
+            }
+            else if(message.getPostedBy() == null || !existingAccounts.contains(message.getPostedBy())){
+                results[i] = BatchMessageResult.rejected(i, "postedBy does not refer to an existing account");
+            }
+            else{
+                message.setMessageId(null); //ids are always generated
+                validMessages.add(message);
+                validIndexes.add(i);
+            }
+        }
+
+        if(!validMessages.isEmpty()){
+            List<Message> savedMessages = transactionTemplate.execute(status -> messageRepository.saveAll(validMessages));
+            for(int i = 0; i < savedMessages.size(); i++){
+                results[validIndexes.get(i)] = BatchMessageResult.created(validIndexes.get(i), savedMessages.get(i).getMessageId());
+                messageVersions.messageChanged(savedMessages.get(i).getMessageId());
+                eventPublisher.publishEvent(MessageEvent.created(viewOf(savedMessages.get(i))));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Replaces the text of an existing message with a single UPDATE statement.  The cached
+     * copy is dropped once the change has been committed, so readers never see the old text
+     * afterwards; the next read loads the new text from the database.
+     * @param messageId - the id of the message to update
+     * @param messageText - the new text, already validated by the caller
+     * @return - the number of rows the database updated: 1 if the message exists, 0 if it doesn't
+     * @throws WriteBehindUnavailableException - in write-behind mode, if the message is queued and isn't written in time
+     */
+    public int updateMessageText(int messageId, String messageText){
+        awaitWritten(messageId);
+        int updatedRows = messageRepository.updateMessageText(messageId, messageText);
+        messageCache.invalidate(messageId);
+        if(updatedRows > 0){
+            messageVersions.messageChanged(messageId);
+            eventPublisher.publishEvent(MessageEvent.updated(messageId, messageText));
+        }
+        return updatedRows;
+    }
+
+    /**
+     * Deletes a message with a single DELETE statement and drops it from the message cache.
+     * @param messageId - the id of the message to delete
+     * @return - the number of rows the database deleted: 1 if the message existed, 0 if it didn't
+     * @throws WriteBehindUnavailableException - in write-behind mode, if the message is queued and isn't written in time
+     */
+    public int deleteMessage(int messageId){
+        awaitWritten(messageId);
+        int deletedRows = messageRepository.deleteMessage(messageId);
+        messageCache.invalidate(messageId);
+        if(deletedRows > 0){
+            messageVersions.messageChanged(messageId);
+            eventPublisher.publishEvent(MessageEvent.deleted(messageId));
+        }
+        return deletedRows;
+    }
+
+    /**
+     * In write-behind mode, a message that is still queued has to reach the database before
+     * it can be updated or deleted there.
+     */
+    private void awaitWritten(int messageId){
+        if(writeBehind != null){
+            writeBehind.awaitWritten(messageId);
+        }
+    }
+
+    /**
+     * Returns one page of messages using keyset pagination: the messages whose id is greater
+     * than "after", in ascending id order.  The client passes the last messageId it received
+     * as "after" to get the next page.
+     * @param after - the last messageId already seen (exclusive), 0 to start from the beginning
+     * @param limit - the maximum number of messages to return, between 1 and MAX_PAGE_SIZE
+     * @return - a list containing at most "limit" messages
+     */
+    @Transactional(readOnly = true)
+    public List<MessageView> getMessagePage(int after, int limit){
+        return messageRepository.findPageAfter(after, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Returns a user's messages newest first.  Without a cursor this is the first page of the
+     * timeline; with one ("before" and "beforeId" taken from the last message of the previous
+     * page) it continues right after it.  Both queries are answered from the
+     * (postedBy, timePostedEpoch desc, messageId desc) index.
+     * When "since" or "until" is given, only the messages posted in [since, until) are returned;
+     * a missing bound leaves that side of the window open.
+     * @param accountId - the account whose messages we want
+     * @param since - the earliest timePostedEpoch to include, or null
+     * @param until - the timePostedEpoch to stop before, or null
+     * @param before - timePostedEpoch of the last message already seen, or null for the first page
+     * @param beforeId - messageId of the last message already seen, used to break ties on time
+     * @param limit - the maximum number of messages to return, or null for all of them
+     * @return - the user's messages, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<MessageView> getTimeline(int accountId, Long since, Long until, Long before, int beforeId, Integer limit){
+        Pageable pageable = limit == null ? Pageable.unpaged() : PageRequest.of(0, limit);
+        if(since != null || until != null){
+            long from = since == null ? Long.MIN_VALUE : since;
+            long to = until == null ? Long.MAX_VALUE : until;
+            if(before == null){
+                return messageRepository.findTimelineBetween(accountId, from, to, pageable);
+            }
+            return messageRepository.findTimelineBetweenBefore(accountId, from, to, before, beforeId, pageable);
+        }
+        if(before == null){
+            return messageRepository.findTimeline(accountId, pageable);
+        }
+        return messageRepository.findTimelineBefore(accountId, before, beforeId, pageable);
+    }
+
+    /**
+     * Returns every user's messages posted in the time window [since, until), oldest first,
+     * using keyset pagination over the (timePostedEpoch, messageId) index.  To get the next
+     * page, the client passes the timePostedEpoch of the last message it received as "since"
+     * and its messageId as "afterId".
+     * @param since - the earliest timePostedEpoch to include
+     * @param until - the timePostedEpoch to stop before, or null for no upper bound
+     * @param afterId - messageId of the last message already seen at "since", or null for the first page
+     * @param limit - the maximum number of messages to return, or null for all of them
+     * @return - the messages in the window, oldest first
+     */
+    @Transactional(readOnly = true)
+    public List<MessageView> getMessagesBetween(long since, Long until, Integer afterId, Integer limit){
+        Pageable pageable = limit == null ? Pageable.unpaged() : PageRequest.of(0, limit);
+        long to = until == null ? Long.MAX_VALUE : until;
+        if(afterId == null){
+            return messageRepository.findBetween(since, to, pageable);
+        }
+        return messageRepository.findBetweenAfter(since, afterId, to, pageable);
+    }
+
+    /**
+     * Writes every message in the database as a JSON array straight to the given output stream.
+     * Rows are pulled one at a time from a database cursor as read-only MessageViews and written
+     * by MessageViewSerializer, so the full list of messages is never held in memory at once and
+     * nothing is tracked by the persistence context.
+     * @param out - the stream the JSON array is written to (usually the HTTP response body)
+     */
+    @Transactional(readOnly = true)
+    public void writeAllMessages(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.writeStartArray();
+        try(Stream<MessageView> messages = messageRepository.streamAll()){
+            Iterator<MessageView> iterator = messages.iterator();
+            while(iterator.hasNext()){
+                MessageViewSerializer.write(iterator.next(), generator);
+            }
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    /**
+     * With the "replica" profile, reads may come from a replica that hasn't caught up with a
+     * change yet.  A cache entry or an ETag filled from it in the meantime holds the old data,
+     * so once the change has reached the replicas, the cached copy is dropped and the version
+     * bumped again.  Clients that got the old data under the new ETag then see it change.
+     */
+    @EventListener
+    public void onRowsReplicated(RowsReplicated event){
+        if(event.table().equals("message")){
+            for(int messageId : event.ids()){
+                messageCache.invalidate(messageId);
+                messageVersions.messageChanged(messageId);
+            }
+        }
+    }
+
+    private static MessageView viewOf(Message message){
+        return new MessageView(message.getMessageId(), message.getPostedBy(), message.getMessageText(), message.getTimePostedEpoch());
+    }
 }
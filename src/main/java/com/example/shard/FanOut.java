@@ -0,0 +1,29 @@
+package com.example.shard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a MessageRepository method that isn't about a single postedBy account.  With the
+ * "sharded" profile it runs on every shard in parallel, and the results are combined as
+ * the value says.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FanOut {
+
+    Merge value();
+
+    enum Merge {
+        /** Optional results: the one shard that found something */
+        FIRST_PRESENT,
+        /** Counts: added up */
+        SUM,
+        /** Lists (or a stream) in ascending messageId order: merged, then cut to the page size */
+        BY_MESSAGE_ID,
+        /** Lists in ascending (timePostedEpoch, messageId) order: merged, then cut to the page size */
+        BY_TIME_POSTED
+    }
+}
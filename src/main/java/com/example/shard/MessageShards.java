@@ -0,0 +1,136 @@
+package com.example.shard;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class runs work against the message shards of the "sharded" profile.
+ *
+ * A message lives on the shard its postedBy account hashes to (shardOf).  Work for a shard
+ * runs in a transaction of its own on a separate (virtual) thread, which is marked with the
+ * shard so ShardRoutingDataSource gives it that shard's connections.  A thread of its own is
+ * what keeps shards apart: the request thread's EntityManager (open-in-view) holds on to the
+ * first connection it gets, which would be the wrong one for the next shard.  It also lets
+ * the work for several shards run at the same time.
+ *
+ * Transactions don't span shards: work on several shards commits (or fails) shard by shard.
+ */
+@Component
+@Profile("sharded")
+public class MessageShards {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shardCount;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate readWriteTransaction;
+    private final VirtualThreadTaskExecutor workers = new VirtualThreadTaskExecutor("message-shard-");
+
+    public MessageShards(ShardDataSources dataSources, PlatformTransactionManager transactionManager){
+        this.shardCount = dataSources.getShards().size();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return - the shard the current thread is working on, or null if it isn't working on one.
+     */
+    public static Integer current(){
+        return CURRENT.get();
+    }
+
+    public int count(){
+        return shardCount;
+    }
+
+    /**
+     * @return - the shard that stores the messages of the given account.  The id is mixed
+     * (MurmurHash3's finalizer) first, so accounts with consecutive ids spread evenly.
+     */
+    public int shardOf(int postedBy){
+        int hash = postedBy;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+
+    /**
+     * Runs work on one shard and waits for its result.
+     */
+    public <T> T onShard(int shard, boolean readOnly, Supplier<T> work){
+        return join(submit(shard, readOnly, work));
+    }
+
+    /**
+     * Runs work on every shard at once.
+     * @return - the results, by shard
+     */
+    public <T> List<T> onEveryShard(boolean readOnly, IntFunction<T> work){
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for(int shard = 0; shard < shardCount; shard++){
+            int target = shard;
+            futures.add(submit(shard, readOnly, () -> work.apply(target)));
+        }
+        List<T> results = new ArrayList<>(shardCount);
+        for(CompletableFuture<T> future : futures){
+            results.add(join(future));
+        }
+        return results;
+    }
+
+    /**
+     * Runs a separate piece of work on each of the given shards at once.
+     * @return - the results, by shard
+     */
+    public <T> Map<Integer, T> onShards(boolean readOnly, Map<Integer, Supplier<T>> work){
+        Map<Integer, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        work.forEach((shard, supplier) -> futures.put(shard, submit(shard, readOnly, supplier)));
+        Map<Integer, T> results = new LinkedHashMap<>();
+        futures.forEach((shard, future) -> results.put(shard, join(future)));
+        return results;
+    }
+
+    private <T> CompletableFuture<T> submit(int shard, boolean readOnly, Supplier<T> work){
+        TransactionTemplate transaction = readOnly ? readOnlyTransaction : readWriteTransaction;
+        return CompletableFuture.supplyAsync(() -> {
+            CURRENT.set(shard);
+            try{
+                return transaction.execute(status -> work.get());
+            }
+            finally{
+                CURRENT.remove();
+            }
+        }, workers);
+    }
+
+    private static <T> T join(CompletableFuture<T> future){
+        try{
+            return future.join();
+        }
+        catch(CompletionException e){
+            if(e.getCause() instanceof RuntimeException cause){
+                throw cause;
+            }
+            if(e.getCause() instanceof Error cause){
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.example.config.DataSourcePools;
+import com.example.repository.MessageRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Wiring of the "sharded" profile (see application-sharded.properties).
+ *
+ * Accounts stay in the main database (spring.datasource.*), and messages are spread over the
+ * shards (app.shards.urls) by postedBy.  The DataSource the application sees routes every
+ * connection to the main database, unless the thread is working on a shard (MessageShards).
+ * The sharding itself is done by ShardingInterceptor, which is added to the MessageRepository
+ * proxy here.
+ */
+@Configuration
+@Profile("sharded")
+public class ShardConfig {
+
+    @Bean
+    public ShardDataSources shardDataSources(DataSourceProperties properties, Environment environment,
+                                             @Value("${app.shards.urls}") List<String> shardUrls){
+        HikariDataSource main = DataSourcePools.pool(properties, environment, properties.determineUrl(), "main");
+        List<HikariDataSource> shards = new ArrayList<>();
+        for(int i = 0; i < shardUrls.size(); i++){
+            shards.add(DataSourcePools.pool(properties, environment, shardUrls.get(i), "shard-" + i));
+        }
+        return new ShardDataSources(main, shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources dataSources){
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(dataSources.getMain(), dataSources.getShards()));
+    }
+
+    /**
+     * Adds ShardingInterceptor in front of every other interceptor of the MessageRepository
+     * proxy.  Static, and with lazy dependencies, since bean post-processors are created
+     * before everything else.
+     */
+    @Bean
+    public static BeanPostProcessor messageRepositorySharding(ObjectProvider<MessageShards> shards, ObjectProvider<MessageRepository> repository){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName){
+                if(bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean && MessageRepository.class.equals(factoryBean.getObjectType())){
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, repositoryInformation) -> proxy.addAdvice(0, new ShardingInterceptor(shards, repository))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.shard;
+
+import java.util.List;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The connection pools of the main database, which keeps the accounts, and of the message
+ * shards, behind the routing DataSource that the rest of the application uses.
+ */
+public class ShardDataSources implements DisposableBean {
+
+    private final HikariDataSource main;
+    private final List<HikariDataSource> shards;
+
+    public ShardDataSources(HikariDataSource main, List<HikariDataSource> shards){
+        this.main = main;
+        this.shards = shards;
+    }
+
+    public HikariDataSource getMain(){
+        return main;
+    }
+
+    public List<HikariDataSource> getShards(){
+        return shards;
+    }
+
+    @Override
+    public void destroy(){
+        for(HikariDataSource shard : shards){
+            shard.close();
+        }
+        main.close();
+    }
+}
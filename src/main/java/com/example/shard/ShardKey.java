@@ -0,0 +1,15 @@
+package com.example.shard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter of a MessageRepository method that holds the postedBy account the call
+ * is about.  With the "sharded" profile the call then goes to that account's shard alone.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
@@ -0,0 +1,31 @@
+package com.example.shard;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Hands out connections from the shard the current thread is working on (see
+ * MessageShards.onShard), and from the main database everywhere else.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(DataSource main, List<? extends DataSource> shards){
+        Map<Object, Object> targets = new HashMap<>();
+        for(int i = 0; i < shards.size(); i++){
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(main);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey(){
+        return MessageShards.current();
+    }
+}
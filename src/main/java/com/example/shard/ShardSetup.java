@@ -0,0 +1,118 @@
+package com.example.shard;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Prepares the message shards when the application starts.
+ *
+ * Every shard gets the message table from the scripts in db/shard (the schema of db/schema,
+ * less the foreign key to account, which is in the main database).  Ids have to be unique
+ * across all shards, so each shard's message_seq hands out different blocks of 50: shard i
+ * of n starts at 1 + 50 * i and steps by 50 * n, so with two shards shard 0 gets [1, 51),
+ * [101, 151), ... and shard 1 gets [51, 101), [151, 201), ...  Hibernate's optimizer fetches
+ * a block from whichever shard it is saving to, and a block is never handed out twice.
+ *
+ * Those blocks must also stay clear of the ids already taken, by the messages about to be moved
+ * and by those the shards hold from earlier runs, so on every start the sequences are restarted
+ * at the first round of blocks above the highest of them (and above anything a sequence may
+ * already have handed out, so an id is never reused either).
+ *
+ * Messages still in the main database's own message table (the test data, or everything when
+ * an unsharded database is switched to this profile) are then moved to their shards.
+ */
+@Component
+@Profile("sharded")
+@DependsOnDatabaseInitialization //the main database must have its schema and test data first
+public class ShardSetup {
+
+    private static final int MOVE_BATCH_SIZE = 1000; //messages moved out of the main database at a time
+    private static final int ID_BLOCK_SIZE = 50; //allocationSize of Message's message_seq generator
+
+    public ShardSetup(ShardDataSources dataSources, MessageShards shards) throws IOException {
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(schemaScripts());
+        int shardCount = dataSources.getShards().size();
+        List<JdbcTemplate> shardTemplates = new ArrayList<>();
+        for(int i = 0; i < shardCount; i++){
+            HikariDataSource shard = dataSources.getShards().get(i);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+            jdbcTemplate.execute("create sequence if not exists message_seq start with " + (1 + ID_BLOCK_SIZE * i) + " increment by " + (ID_BLOCK_SIZE * shardCount));
+            schema.execute(shard);
+            shardTemplates.add(jdbcTemplate);
+        }
+        JdbcTemplate main = new JdbcTemplate(dataSources.getMain());
+        restartSequences(main, shardTemplates);
+        moveMessages(main, shardTemplates, shards);
+    }
+
+    /**
+     * Restarts every shard's message_seq at its first block above the highest id taken anywhere,
+     * keeping the sequences' offsets of 50 * i and their step of 50 * n.
+     */
+    private static void restartSequences(JdbcTemplate main, List<JdbcTemplate> shardTemplates){
+        int shardCount = shardTemplates.size();
+        long highest = maxMessageId(main);
+        for(JdbcTemplate shard : shardTemplates){
+            highest = Math.max(highest, maxMessageId(shard));
+            //the last value the sequence returned is the start of a block that may be in use
+            Long next = shard.queryForObject("select base_value from information_schema.sequences where sequence_name = 'MESSAGE_SEQ'", Long.class);
+            highest = Math.max(highest, next - ID_BLOCK_SIZE * shardCount + ID_BLOCK_SIZE - 1);
+        }
+        long block = highest < 1 ? 0 : (highest - 1) / ID_BLOCK_SIZE + 1; //first block [1 + 50 * block, ...) above highest
+        long round = (block + shardCount - 1) / shardCount * shardCount;
+        for(int i = 0; i < shardCount; i++){
+            shardTemplates.get(i).execute("alter sequence message_seq restart with " + (1 + ID_BLOCK_SIZE * (round + i)) + " increment by " + (ID_BLOCK_SIZE * shardCount));
+        }
+    }
+
+    private static long maxMessageId(JdbcTemplate jdbcTemplate){
+        Long max = jdbcTemplate.queryForObject("select max(messageId) from message", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    private static Resource[] schemaScripts() throws IOException {
+        Resource[] scripts = new PathMatchingResourcePatternResolver().getResources("classpath:db/shard/*.sql");
+        Arrays.sort(scripts, Comparator.comparing(Resource::getFilename));
+        return scripts;
+    }
+
+    /**
+     * Copies the main database's messages to their shards and deletes them from it, a batch at
+     * a time.  The copy is a merge, so a move that was cut short is simply done again.
+     */
+    private static void moveMessages(JdbcTemplate main, List<JdbcTemplate> shardTemplates, MessageShards shards){
+        while(true){
+            List<Object[]> messages = main.query("select messageId, postedBy, messageText, timePostedEpoch from message order by messageId limit " + MOVE_BATCH_SIZE,
+                    (row, rowNum) -> new Object[]{row.getInt(1), row.getInt(2), row.getString(3), row.getObject(4)});
+            if(messages.isEmpty()){
+                return;
+            }
+            List<List<Object[]>> byShard = new ArrayList<>();
+            for(int i = 0; i < shardTemplates.size(); i++){
+                byShard.add(new ArrayList<>());
+            }
+            for(Object[] message : messages){
+                byShard.get(shards.shardOf((Integer) message[1])).add(message);
+            }
+            for(int i = 0; i < shardTemplates.size(); i++){
+                if(!byShard.get(i).isEmpty()){
+                    shardTemplates.get(i).batchUpdate("merge into message (messageId, postedBy, messageText, timePostedEpoch) key (messageId) values (?, ?, ?, ?)", byShard.get(i));
+                }
+            }
+            main.batchUpdate("delete from message where messageId = ?", messages.stream().map(message -> new Object[]{message[0]}).toList());
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.shard;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+
+import com.example.dto.MessageView;
+import com.example.entity.Message;
+import com.example.repository.MessageRepository;
+
+/**
+ * The sharding layer of MessageRepository in the "sharded" profile.  It is the first
+ * interceptor of the repository proxy, so every call is sent to the right shards before
+ * Spring Data starts a transaction or runs a query, and callers don't know about shards.
+ *
+ *  - save() and saveAll() write every message to the shard of its postedBy.
+ *  - Methods with a @ShardKey parameter run on that account's shard only.
+ *  - @FanOut methods (and findById(), findAll() and count()) run on every shard in parallel,
+ *    and their results are merged.  streamAll() is merged lazily, from pages of
+ *    findPageAfter() read from each shard as the stream is consumed, so it still never holds
+ *    every message at once.
+ *
+ * Any other method is refused, rather than quietly answered from a single shard.
+ */
+public class ShardingInterceptor implements MethodInterceptor {
+
+    private static final int STREAM_PAGE_SIZE = 500; //messages read from a shard at a time by streamAll()
+
+    private static final Comparator<Object> BY_MESSAGE_ID = Comparator.comparingInt(ShardingInterceptor::messageId);
+    private static final Comparator<Object> BY_TIME_POSTED = Comparator.comparingLong(ShardingInterceptor::timePostedEpoch)
+            .thenComparingInt(ShardingInterceptor::messageId);
+
+    private final ObjectProvider<MessageShards> shards;
+    private final ObjectProvider<MessageRepository> repository; //for the pages behind streamAll()
+
+    public ShardingInterceptor(ObjectProvider<MessageShards> shards, ObjectProvider<MessageRepository> repository){
+        this.shards = shards;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if(MessageShards.current() != null){
+            return invocation.proceed(); //already routed: we are the work for one shard
+        }
+        MessageShards shards = this.shards.getObject();
+        ProxyMethodInvocation call = (ProxyMethodInvocation) invocation;
+        Method method = invocation.getMethod();
+        Object[] arguments = invocation.getArguments();
+        boolean readOnly = !isWrite(method);
+
+        if(method.getName().equals("save") && arguments.length == 1){
+            int shard = shards.shardOf(postedBy(arguments[0]));
+            return shards.onShard(shard, false, () -> proceed(call.invocableClone()));
+        }
+        if(method.getName().equals("saveAll") && arguments.length == 1){
+            return saveAll(shards, call, (Iterable<?>) arguments[0]);
+        }
+        if(method.getName().equals("findById") && arguments.length == 1){
+            return fanOut(shards, call, FanOut.Merge.FIRST_PRESENT, readOnly);
+        }
+        if((method.getName().equals("findAll") || method.getName().equals("count")) && arguments.length == 0){
+            return fanOut(shards, call, method.getName().equals("count") ? FanOut.Merge.SUM : FanOut.Merge.BY_MESSAGE_ID, readOnly);
+        }
+
+        FanOut fanOut = method.getAnnotation(FanOut.class);
+        if(fanOut != null){
+            return fanOut(shards, call, fanOut.value(), readOnly);
+        }
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for(int i = 0; i < parameterAnnotations.length; i++){
+            for(Annotation annotation : parameterAnnotations[i]){
+                if(annotation instanceof ShardKey){
+                    int shard = shards.shardOf((Integer) arguments[i]);
+                    return shards.onShard(shard, readOnly, () -> proceed(call.invocableClone()));
+                }
+            }
+        }
+        throw new UnsupportedOperationException("MessageRepository." + method.getName()
+                + " has no sharding rule: add @ShardKey to its postedBy parameter or @FanOut to the method");
+    }
+
+    /**
+     * Saves each shard's messages in one call (and transaction) per shard, all shards at once.
+     * @return - the saved messages, in the order they were given
+     */
+    private Object saveAll(MessageShards shards, ProxyMethodInvocation call, Iterable<?> messages){
+        List<Object> all = new ArrayList<>();
+        Map<Integer, List<Object>> byShard = new LinkedHashMap<>();
+        for(Object message : messages){
+            all.add(message);
+            byShard.computeIfAbsent(shards.shardOf(postedBy(message)), shard -> new ArrayList<>()).add(message);
+        }
+        Map<Integer, Supplier<List<?>>> work = new LinkedHashMap<>();
+        byShard.forEach((shard, shardMessages) -> work.put(shard, () -> (List<?>) proceed(call.invocableClone(shardMessages))));
+        Map<Integer, Iterator<?>> saved = new HashMap<>();
+        shards.onShards(false, work).forEach((shard, shardSaved) -> saved.put(shard, shardSaved.iterator()));
+        List<Object> result = new ArrayList<>(all.size());
+        for(Object message : all){
+            result.add(saved.get(shards.shardOf(postedBy(message))).next());
+        }
+        return result;
+    }
+
+    private Object fanOut(MessageShards shards, ProxyMethodInvocation call, FanOut.Merge merge, boolean readOnly){
+        Method method = call.getMethod();
+        if(Stream.class.isAssignableFrom(method.getReturnType())){
+            if(merge != FanOut.Merge.BY_MESSAGE_ID){
+                throw new UnsupportedOperationException("MessageRepository." + method.getName() + ": only streams by messageId can be merged");
+            }
+            return mergedStream(shards);
+        }
+
+        //Every shard has to return offset + size rows for the merged page to be right
+        Object[] arguments = call.getArguments().clone();
+        Pageable page = Pageable.unpaged();
+        for(int i = 0; i < arguments.length; i++){
+            if(arguments[i] instanceof Pageable pageable && pageable.isPaged()){
+                page = pageable;
+                arguments[i] = PageRequest.of(0, (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE), pageable.getSort());
+            }
+        }
+        List<Object> results = shards.onEveryShard(readOnly, shard -> proceed(call.invocableClone(arguments)));
+
+        switch(merge){
+            case FIRST_PRESENT -> {
+                for(Object result : results){
+                    if(result instanceof Optional<?> optional && optional.isPresent()){
+                        return optional;
+                    }
+                }
+                return Optional.empty();
+            }
+            case SUM -> {
+                long sum = 0;
+                for(Object result : results){
+                    sum += ((Number) result).longValue();
+                }
+                return method.getReturnType() == int.class || method.getReturnType() == Integer.class ? (Object) (int) sum : (Object) sum;
+            }
+            default -> {
+                List<Object> merged = new ArrayList<>();
+                for(Object result : results){
+                    merged.addAll((List<?>) result);
+                }
+                merged.sort(merge == FanOut.Merge.BY_TIME_POSTED ? BY_TIME_POSTED : BY_MESSAGE_ID);
+                if(page.isPaged()){
+                    int from = (int) Math.min(page.getOffset(), merged.size());
+                    return new ArrayList<>(merged.subList(from, Math.min(from + page.getPageSize(), merged.size())));
+                }
+                return merged;
+            }
+        }
+    }
+
+    /**
+     * Every message in ascending messageId order: each shard is read a page at a time, and the
+     * shard holding the next smallest messageId is always the one that is taken from.
+     */
+    private Stream<MessageView> mergedStream(MessageShards shards){
+        MessageRepository repository = this.repository.getObject();
+        List<List<MessageView>> firstPages = shards.onEveryShard(true, shard -> repository.findPageAfter(0, PageRequest.of(0, STREAM_PAGE_SIZE)));
+        PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(Comparator.comparingInt((ShardCursor cursor) -> cursor.head.messageId()));
+        for(int shard = 0; shard < firstPages.size(); shard++){
+            ShardCursor cursor = new ShardCursor(shards, repository, shard, firstPages.get(shard));
+            if(cursor.head != null){
+                cursors.add(cursor);
+            }
+        }
+        Iterator<MessageView> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext(){
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public MessageView next(){
+                ShardCursor cursor = cursors.poll();
+                if(cursor == null){
+                    throw new NoSuchElementException();
+                }
+                MessageView message = cursor.head;
+                cursor.advance();
+                if(cursor.head != null){
+                    cursors.add(cursor);
+                }
+                return message;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Reads one shard's messages in messageId order, a page at a time.
+     */
+    private static final class ShardCursor {
+        private final MessageShards shards;
+        private final MessageRepository repository;
+        private final int shard;
+        private Iterator<MessageView> page;
+        private boolean lastPage;
+        private MessageView head; //the next message of this shard, null once it has no more
+
+        ShardCursor(MessageShards shards, MessageRepository repository, int shard, List<MessageView> firstPage){
+            this.shards = shards;
+            this.repository = repository;
+            this.shard = shard;
+            setPage(firstPage);
+            advance();
+        }
+
+        void advance(){
+            if(!page.hasNext() && !lastPage){
+                int after = head.messageId();
+                setPage(shards.onShard(shard, true, () -> repository.findPageAfter(after, PageRequest.of(0, STREAM_PAGE_SIZE))));
+            }
+            head = page.hasNext() ? page.next() : null;
+        }
+
+        private void setPage(List<MessageView> messages){
+            page = messages.iterator();
+            lastPage = messages.size() < STREAM_PAGE_SIZE;
+        }
+    }
+
+    private static boolean isWrite(Method method){
+        return method.isAnnotationPresent(Modifying.class) || method.getName().startsWith("save") || method.getName().startsWith("delete");
+    }
+
+    private static int postedBy(Object message){
+        Integer postedBy = ((Message) message).getPostedBy();
+        if(postedBy == null){
+            throw new IllegalArgumentException("A message without postedBy can't be assigned to a shard");
+        }
+        return postedBy;
+    }
+
+    private static int messageId(Object message){
+        return message instanceof MessageView view ? view.messageId() : ((Message) message).getMessageId();
+    }
+
+    private static long timePostedEpoch(Object message){
+        return message instanceof MessageView view ? view.timePostedEpoch() : ((Message) message).getTimePostedEpoch();
+    }
+
+    private static Object proceed(MethodInvocation invocation){
+        try{
+            return invocation.proceed();
+        }
+        catch(RuntimeException | Error e){
+            throw e;
+        }
+        catch(Throwable e){
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.stream;
+
+import com.example.dto.MessageView;
+
+/**
+ * A committed change to a message, published by MessageService and pushed to every
+ * subscriber of GET /messages/stream.
+ *
+ * Updates and deletes run as single statements keyed by messageId, so only the fields the
+ * change actually knows about are filled in:
+ *  - created: the full message
+ *  - updated: messageId and the new messageText
+ *  - deleted: messageId only
+ */
+public record MessageEvent(Type type, MessageView message) {
+
+    public enum Type {
+        created, updated, deleted
+    }
+
+    public static MessageEvent created(MessageView message){
+        return new MessageEvent(Type.created, message);
+    }
+
+    public static MessageEvent updated(int messageId, String messageText){
+        return new MessageEvent(Type.updated, new MessageView(messageId, null, messageText, null));
+    }
+
+    public static MessageEvent deleted(int messageId){
+        return new MessageEvent(Type.deleted, new MessageView(messageId, null, null, null));
+    }
+}
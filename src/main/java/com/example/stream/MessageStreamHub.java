@@ -0,0 +1,269 @@
+package com.example.stream;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * This class fans committed message changes out to every client of GET /messages/stream.
+ *
+ * Each event is serialized once, into a ready-to-send SSE frame shared by all subscribers.
+ * Every subscriber then gets its own bounded queue of frames, drained by a virtual thread
+ * while there is something to send.  A client that can't keep up blocks only its own (cheap)
+ * virtual thread; once its queue is full it is evicted (its stream is completed) rather than
+ * letting it hold an unbounded backlog in memory.
+ *
+ * Every event carries an id from this hub's own counter (not a messageId), and the last
+ * replay-size events are kept.  A client that reconnects with the Last-Event-ID header, as
+ * EventSource does by itself, is first sent the events it missed, updates and deletes
+ * included.  If they are no longer kept (or the id is unknown, e.g. from before a restart or
+ * from another node), it gets a single "reset" event instead: it should reload what it shows
+ * with GET /messages and carry on from there.
+ *
+ * A heartbeat comment is queued for every subscriber periodically, so connections to clients
+ * that have gone away are noticed and cleaned up.
+ */
+@Component
+@Profile("!reactive") //Served by SocialMediaController, which has the same profile
+public class MessageStreamHub implements DisposableBean {
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize; //frames a subscriber may fall behind before it is evicted
+    private final int maxSubscribers;
+    private final long emitterTimeoutMillis;
+    private final int replaySize; //recent events kept for clients that reconnect
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ArrayDeque<RecentEvent> recentEvents = new ArrayDeque<>(); //also the lock that orders events and new subscribers
+    private long latestEventId = 0; //id of the last event published; guarded by recentEvents
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "message-stream-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<DataWithMediaType> heartbeatFrame = SseEmitter.event().comment("heartbeat").build();
+    private final Counter evictions;
+
+    public MessageStreamHub(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${app.stream.buffer-size}") int bufferSize,
+                            @Value("${app.stream.max-subscribers}") int maxSubscribers,
+                            @Value("${app.stream.emitter-timeout}") Duration emitterTimeout,
+                            @Value("${app.stream.replay-size}") int replaySize,
+                            @Value("${app.stream.heartbeat-interval}") Duration heartbeatInterval){
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.replaySize = replaySize;
+        Gauge.builder("messages.stream.subscribers", subscribers, Set::size)
+                .description("Open GET /messages/stream connections")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("messages.stream.evictions")
+                .description("Subscribers dropped because they fell too far behind")
+                .register(meterRegistry);
+        long period = heartbeatInterval.toMillis();
+        heartbeats.scheduleAtFixedRate(() -> publishFrame(heartbeatFrame), period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a new stream.
+     * @param lastEventId - the Last-Event-ID a reconnecting client sent, or null for a new one
+     * @return - the emitter to return from the controller, or null if the node already has
+     * as many subscribers as it is allowed
+     */
+    public SseEmitter subscribe(String lastEventId){
+        if(subscribers.size() >= maxSubscribers){
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        synchronized(recentEvents){ //no event can be published between the replay and joining
+            List<Set<DataWithMediaType>> missed = missedSince(lastEventId);
+            Subscriber subscriber = new Subscriber(emitter, bufferSize + missed.size());
+            emitter.onCompletion(() -> subscribers.remove(subscriber));
+            emitter.onTimeout(() -> subscribers.remove(subscriber));
+            emitter.onError(error -> subscribers.remove(subscriber));
+            for(Set<DataWithMediaType> frame : missed){
+                subscriber.enqueue(frame);
+            }
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * @return - the frames of the events after lastEventId, or a "reset" frame if they aren't
+     * all kept any more.  Must be called holding recentEvents.
+     */
+    private List<Set<DataWithMediaType>> missedSince(String lastEventId){
+        List<Set<DataWithMediaType>> missed = new ArrayList<>();
+        if(lastEventId == null){
+            return missed;
+        }
+        long seen;
+        try{
+            seen = Long.parseLong(lastEventId.trim());
+        }
+        catch(NumberFormatException e){
+            seen = -1;
+        }
+        if(seen == latestEventId){
+            return missed;
+        }
+        if(seen >= 0 && seen < latestEventId && !recentEvents.isEmpty() && recentEvents.peekFirst().id() <= seen + 1){
+            for(RecentEvent event : recentEvents){
+                if(event.id() > seen){
+                    missed.add(event.frame());
+                }
+            }
+            return missed;
+        }
+        missed.add(SseEmitter.event().id(Long.toString(latestEventId)).name("reset").data("").build());
+        return missed;
+    }
+
+    /**
+     * Pushes a message change to every subscriber.  Events published inside a transaction are
+     * held back until it commits (and dropped if it rolls back); MessageService publishes after
+     * its statements have already committed, so those go out straight away.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(MessageEvent event) throws JsonProcessingException {
+        String data = objectMapper.writeValueAsString(event.message());
+        synchronized(recentEvents){
+            long id = ++latestEventId;
+            Set<DataWithMediaType> frame = SseEmitter.event()
+                    .id(Long.toString(id))
+                    .name(event.type().name())
+                    .data(data, MediaType.APPLICATION_JSON)
+                    .build();
+            if(replaySize > 0){
+                if(recentEvents.size() == replaySize){
+                    recentEvents.removeFirst();
+                }
+                recentEvents.addLast(new RecentEvent(id, frame));
+            }
+            publishFrame(frame);
+        }
+    }
+
+    private void publishFrame(Set<DataWithMediaType> frame){
+        for(Subscriber subscriber : subscribers){
+            subscriber.enqueue(frame);
+        }
+    }
+
+    /**
+     * @return - the number of open streams on this node.
+     */
+    public int subscriberCount(){
+        return subscribers.size();
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        for(Subscriber subscriber : subscribers){
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    private record RecentEvent(long id, Set<DataWithMediaType> frame) {
+    }
+
+    /**
+     * One open stream: its emitter and the frames waiting to be sent to it.
+     * Only one sender drains a subscriber at a time, so frames go out in order.
+     */
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Set<DataWithMediaType>> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, int bufferSize){
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void enqueue(Set<DataWithMediaType> frame){
+            if(!queue.offer(frame)){
+                evict();
+                return;
+            }
+            if(draining.compareAndSet(false, true)){
+                send(this::drain);
+            }
+        }
+
+        void drain(){
+            do{
+                Set<DataWithMediaType> frame;
+                while((frame = queue.poll()) != null){
+                    try{
+                        emitter.send(frame);
+                    }
+                    catch(IOException | IllegalStateException e){
+                        //The client went away or the stream was already completed.
+                        subscribers.remove(this);
+                        queue.clear();
+                        return;
+                    }
+                }
+                draining.set(false);
+            }
+            //A frame may have been queued after the last poll but before draining was cleared.
+            while(!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        /**
+         * Hands work for this subscriber to a sender thread.  Once the hub is shutting down
+         * there are none left, and the subscriber is simply dropped.
+         */
+        void send(Runnable work){
+            try{
+                senders.execute(work);
+            }
+            catch(RejectedExecutionException e){
+                subscribers.remove(this);
+            }
+        }
+
+        void evict(){
+            if(subscribers.remove(this)){
+                evictions.increment();
+                queue.clear();
+                //The emitter is locked while a send is blocked on this very client, so the
+                //publisher must not wait for it: complete the stream from a sender thread.
+                send(emitter::complete);
+            }
+        }
+    }
+}
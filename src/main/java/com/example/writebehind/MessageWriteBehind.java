@@ -0,0 +1,307 @@
+package com.example.writebehind;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.cache.MessageCache;
+import com.example.cache.MessageVersions;
+import com.example.dto.MessageView;
+import com.example.entity.Message;
+import com.example.exception.WriteBehindUnavailableException;
+import com.example.stream.MessageEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Write-behind mode for new messages (the "write-behind" profile, see
+ * application-write-behind.properties).
+ *
+ * POST /messages no longer waits for the insert.  A validated message gets its id at once,
+ * from a block reserved on message_seq (IdBlockAllocator), and is put on a bounded lock-free
+ * ring (RingBuffer).  One writer thread drains the ring and inserts the messages in JDBC
+ * batches, one transaction per batch: as soon as batch-size messages are waiting, or
+ * flush-interval after the last batch.  Only then do the other parts of the application
+ * hear about the message (message cache, ETags, MessageEvent), as they do after a commit.
+ *
+ * Durability: a 200 means the message is queued in memory, not that it is stored.  If the
+ * process dies, the messages still queued (at most capacity, normally those of the last
+ * flush-interval) are lost.  On a normal shutdown new messages are refused and the queue is
+ * written out first, for up to shutdown-timeout.  Transient database errors and lost
+ * connections are retried until they pass; a message the database refuses for any other
+ * reason (a broken constraint, say) is dropped and counted.
+ *
+ * Backpressure: when the ring is full, submit() throws WriteBehindUnavailableException
+ * (503 Service Unavailable) instead of queueing more, so the memory used is fixed.
+ *
+ * Consistency: until a message is written, reads by its id are answered from the queued
+ * copy (pending()), and updating or deleting it first waits for it to be written
+ * (awaitWritten()).  List queries (GET /messages, timelines, ...) show it once it is written.
+ *
+ * Not combined with the "sharded" profile, since messages are written to the main database.
+ */
+@Component
+@Profile("write-behind")
+public class MessageWriteBehind implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteBehind.class);
+
+    static final int ID_BLOCK_SIZE = 50; //allocationSize of Message's message_seq generator
+    private static final String INSERT = "insert into message (messageId, postedBy, messageText, timePostedEpoch) values (?, ?, ?, ?)";
+
+    private final RingBuffer<Message> queue;
+    private final Map<Integer, Message> pending = new ConcurrentHashMap<>(); //accepted, not yet written: messageId -> message
+    private final IdBlockAllocator ids;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageCache messageCache;
+    private final MessageVersions messageVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long awaitTimeoutNanos;
+    private final long retryDelayMillis;
+    private final long shutdownTimeoutMillis;
+    private final Object writtenSignal = new Object(); //notified after every batch
+    private final Thread writer;
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+    private volatile boolean flushRequested = false; //someone is waiting for a queued message
+    private final Counter written;
+    private final Counter rejected;
+    private final Counter dropped;
+
+    public MessageWriteBehind(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, MessageCache messageCache,
+                              MessageVersions messageVersions, ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                              @Value("${app.write-behind.capacity}") int capacity,
+                              @Value("${app.write-behind.batch-size}") int batchSize,
+                              @Value("${app.write-behind.flush-interval}") Duration flushInterval,
+                              @Value("${app.write-behind.await-timeout}") Duration awaitTimeout,
+                              @Value("${app.write-behind.retry-delay}") Duration retryDelay,
+                              @Value("${app.write-behind.shutdown-timeout}") Duration shutdownTimeout){
+        this.queue = new RingBuffer<>(capacity);
+        this.ids = new IdBlockAllocator(jdbcTemplate, "message_seq", ID_BLOCK_SIZE);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageCache = messageCache;
+        this.messageVersions = messageVersions;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.awaitTimeoutNanos = awaitTimeout.toNanos();
+        this.retryDelayMillis = retryDelay.toMillis();
+        this.shutdownTimeoutMillis = shutdownTimeout.toMillis();
+        Gauge.builder("messages.write_behind.queued", queue, RingBuffer::size)
+                .description("Messages accepted and waiting to be written")
+                .register(meterRegistry);
+        this.written = Counter.builder("messages.write_behind.written")
+                .description("Queued messages written to the database")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("messages.write_behind.rejected")
+                .description("Messages turned away because the queue was full")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("messages.write_behind.dropped")
+                .description("Queued messages the database refused")
+                .register(meterRegistry);
+        this.writer = new Thread(this::run, "message-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a validated message.
+     * @return - the message, with the messageId it will be stored under
+     * @throws WriteBehindUnavailableException - if the queue is full or the application is stopping
+     */
+    public Message submit(Message message){
+        if(!accepting){
+            throw new WriteBehindUnavailableException("The application is shutting down");
+        }
+        int messageId = ids.nextId();
+        message.setMessageId(messageId);
+        pending.put(messageId, message);
+        if(!queue.offer(message)){
+            pending.remove(messageId);
+            rejected.increment();
+            throw new WriteBehindUnavailableException("The write-behind queue is full");
+        }
+        if(queue.size() >= batchSize){
+            LockSupport.unpark(writer);
+        }
+        return message;
+    }
+
+    /**
+     * @return - the queued message with this id, or null if there is none (it was written
+     * already, or never existed).
+     */
+    public Message pending(int messageId){
+        return pending.get(messageId);
+    }
+
+    /**
+     * Waits until the message with this id, if it is queued, has been written, asking the
+     * writer to flush right away.
+     * @throws WriteBehindUnavailableException - if it isn't written within await-timeout
+     */
+    public void awaitWritten(int messageId){
+        if(!pending.containsKey(messageId)){
+            return;
+        }
+        flushRequested = true;
+        LockSupport.unpark(writer);
+        long deadline = System.nanoTime() + awaitTimeoutNanos;
+        synchronized(writtenSignal){
+            while(pending.containsKey(messageId)){
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0){
+                    throw new WriteBehindUnavailableException("Message " + messageId + " has not been written yet");
+                }
+                try{
+                    TimeUnit.NANOSECONDS.timedWait(writtenSignal, remaining);
+                }
+                catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    throw new WriteBehindUnavailableException("Interrupted while waiting for message " + messageId);
+                }
+            }
+        }
+    }
+
+    private void run(){
+        List<Message> batch = new ArrayList<>(batchSize);
+        while(running || queue.size() > 0){
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while(running && !flushRequested && queue.size() < batchSize){
+                long remaining = deadline - System.nanoTime();
+                if(remaining <= 0){
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            flushRequested = false;
+            while(queue.drainTo(batch, batchSize) > 0){
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch in one transaction, retrying for as long as the database is unreachable
+     * or failing transiently.  If the database refuses the batch itself, the messages are
+     * inserted one at a time so only the bad ones are dropped.
+     */
+    private void write(List<Message> batch){
+        while(true){
+            try{
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (statement, message) -> {
+                    statement.setInt(1, message.getMessageId());
+                    statement.setObject(2, message.getPostedBy(), Types.INTEGER);
+                    statement.setString(3, message.getMessageText());
+                    statement.setObject(4, message.getTimePostedEpoch(), Types.BIGINT); //optional
+                }));
+            }
+            catch(RuntimeException e){
+                if(retryable(e)){
+                    log.warn("Writing {} queued messages failed, retrying", batch.size(), e);
+                    try{
+                        Thread.sleep(retryDelayMillis);
+                    }
+                    catch(InterruptedException interrupted){
+                        Thread.currentThread().interrupt();
+                        return; //only on shutdown: the messages stay pending and are lost
+                    }
+                    continue;
+                }
+                if(batch.size() == 1){
+                    log.warn("Dropping queued message {}, which the database refused", batch.get(0).getMessageId(), e);
+                    pending.remove(batch.get(0).getMessageId());
+                    dropped.increment();
+                    signalWritten();
+                    return;
+                }
+                for(Message message : batch){
+                    write(new ArrayList<>(List.of(message)));
+                }
+                return;
+            }
+            written(batch); //outside the try: once committed, the batch is never inserted again
+            return;
+        }
+    }
+
+    /**
+     * @return - true if the write may pass when tried again: a transient failure, or a lost
+     * (or not yet available) connection, rather than the database refusing the messages.
+     */
+    private static boolean retryable(RuntimeException e){
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * What MessageService does after a committed insert, for every message of the batch.
+     * The message is only taken out of pending once the cache holds it, so a read by id
+     * always finds it in one of the two.  A listener failing (on shutdown, say) doesn't
+     * undo the write, so it is only logged.
+     */
+    private void written(List<Message> batch){
+        for(Message message : batch){
+            messageCache.put(message);
+            messageVersions.messageChanged(message.getMessageId());
+            try{
+                eventPublisher.publishEvent(MessageEvent.created(new MessageView(message.getMessageId(), message.getPostedBy(),
+                        message.getMessageText(), message.getTimePostedEpoch())));
+            }
+            catch(RuntimeException e){
+                log.warn("Announcing written message {} failed", message.getMessageId(), e);
+            }
+            pending.remove(message.getMessageId());
+        }
+        written.increment(batch.size());
+        signalWritten();
+    }
+
+    private void signalWritten(){
+        synchronized(writtenSignal){
+            writtenSignal.notifyAll();
+        }
+    }
+
+    /**
+     * Stops taking new messages and writes out the queue, for up to shutdown-timeout.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        accepting = false;
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(shutdownTimeoutMillis);
+        if(writer.isAlive()){
+            writer.interrupt();
+            log.error("Shutting down with {} queued messages not written", pending.size());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.writebehind;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer (Dmitry Vyukov's
+ * bounded queue).
+ *
+ * The elements sit in a fixed array used as a ring, so nothing is allocated per element and
+ * the memory it can ever use is fixed when it is created.  Every slot has a sequence number
+ * saying whose turn it is: a producer may fill slot i of lap n when its sequence is
+ * n * capacity + i, and the consumer may empty it once the producer has moved the sequence
+ * on by one.  Producers claim positions with a compare-and-set on the tail, and offer()
+ * returns false instead of waiting when the ring is full.
+ *
+ * @param <E> - the element type
+ */
+public class RingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences; //per slot: the position that may use it next
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); //next position a producer claims
+    private volatile long head = 0; //next position the consumer takes; only the consumer writes it
+
+    /**
+     * @param capacity - the number of elements the ring holds, a power of two
+     */
+    public RingBuffer(int capacity){
+        if(capacity < 1 || Integer.bitCount(capacity) != 1){
+            throw new IllegalArgumentException("The capacity must be a power of two, not " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++){
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds an element, from any thread.
+     * @return - false if the ring is full
+     */
+    public boolean offer(E element){
+        while(true){
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if(sequence == position){
+                if(tail.compareAndSet(position, position + 1)){
+                    elements[index] = element;
+                    sequences.set(index, position + 1); //hands the slot to the consumer
+                    return true;
+                }
+            }
+            else if(sequence < position){
+                return false; //the slot still holds the element of the previous lap
+            }
+            //otherwise another producer claimed this position first: try the next one
+        }
+    }
+
+    /**
+     * Takes the oldest element.  Only ever called by the one consumer thread.
+     * @return - the element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll(){
+        long position = head;
+        int index = (int) position & mask;
+        if(sequences.get(index) != position + 1){
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.set(index, position + elements.length); //hands the slot to the producer of the next lap
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Moves up to max of the oldest elements to the sink.  Consumer thread only.
+     * @return - the number of elements moved
+     */
+    public int drainTo(Collection<? super E> sink, int max){
+        int drained = 0;
+        E element;
+        while(drained < max && (element = poll()) != null){
+            sink.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * @return - roughly how many elements are queued; exact when no one is adding or taking.
+     */
+    public int size(){
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, elements.length));
+    }
+
+    public int capacity(){
+        return elements.length;
+    }
+}
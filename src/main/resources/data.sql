@@ -1,17 +1,5 @@
-drop table if exists message;
-drop table if exists account;
-create table account (
-    accountId int primary key auto_increment,
-    username varchar(255) not null unique,
-    password varchar(255)
-);
-create table message (
-    messageId int primary key auto_increment,
-    postedBy int,
-    messageText varchar(255),
-    timePostedEpoch bigint,
-    foreign key (postedBy) references account(accountId)
-);
+-- Test data for the in-memory database, loaded after db/reset.sql and the scripts in db/schema.
+-- The seeded rows below use ids 9996-9999; generated ids stay clear of them until the sequences reach 9951.
 
 -- Starting test values with ids of 9999 to avoid test issues
 insert into account values (9999, 'testuser1', 'password');
@@ -0,0 +1,11 @@
+-- Only run by the "replica" profile, after db/schema and before data.sql, so the test data is logged too.
+-- Every committed row change of account and message is recorded here by ChangeLogTrigger, and
+-- ReplicationStandIn copies those rows to the replica databases and removes their entries.
+drop table if exists replication_log;
+create table replication_log (
+    seq bigint generated by default as identity primary key,
+    tableName varchar(64) not null,
+    rowId int not null
+);
+create trigger account_replication after insert, update, delete on account for each row call 'com.example.replica.ChangeLogTrigger';
+create trigger message_replication after insert, update, delete on message for each row call 'com.example.replica.ChangeLogTrigger';
@@ -0,0 +1,6 @@
+-- Runs before the scripts in db/schema when the database is in memory, so every start (and every test)
+-- begins from an empty schema and the rows in data.sql.  Never run against the "prod" profile's database.
+drop table if exists message;
+drop table if exists account;
+drop sequence if exists message_seq;
+drop sequence if exists account_seq;
@@ -0,0 +1,24 @@
+-- The schema is built up by the scripts in this directory, which run in file name order on every start.
+-- They must only ever add to it (create ... if not exists, alter table ... add column if not exists, ...)
+-- so they are safe to run again against a database that already has data in it, such as the file-backed
+-- database of the "prod" profile.  Changes go into a new script; scripts that have shipped are never edited.
+
+-- Each table has its own id sequence, handed out in blocks of 50 (allocationSize on the entities).
+-- With the pooled-lo optimizer Hibernate owns the block [n, n + 50) for every value n it draws, so rows
+-- inserted outside of Hibernate can safely take their id from the same sequence through the column default.
+create sequence if not exists account_seq start with 1 increment by 50;
+create sequence if not exists message_seq start with 1 increment by 50;
+create table if not exists account (
+    accountId int default next value for account_seq primary key,
+    username varchar(255) not null unique,
+    password varchar(255)
+);
+create table if not exists message (
+    messageId int default next value for message_seq primary key,
+    postedBy int,
+    messageText varchar(255),
+    timePostedEpoch bigint,
+    foreign key (postedBy) references account(accountId)
+);
+-- Serves the per-user timeline (GET /accounts/{accountId}/messages), newest messages first
+create index if not exists message_postedBy_time_idx on message (postedBy, timePostedEpoch desc, messageId desc);
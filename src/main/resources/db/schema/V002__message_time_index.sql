@@ -0,0 +1,2 @@
+-- Serves time windows over every user's messages (GET /messages?since=&until=), oldest messages first
+create index if not exists message_time_idx on message (timePostedEpoch, messageId);
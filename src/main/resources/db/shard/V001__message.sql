@@ -0,0 +1,12 @@
+-- The message table of a shard in the "sharded" profile, run on every start like db/schema and under the
+-- same additive rules.  It follows the message table of db/schema, without the foreign key to account:
+-- accounts stay in the main database.  A change to the message table in db/schema needs a script here too.
+-- message_seq is created by ShardSetup beforehand, since its start and step depend on the shard.
+create table if not exists message (
+    messageId int default next value for message_seq primary key,
+    postedBy int,
+    messageText varchar(255),
+    timePostedEpoch bigint
+);
+create index if not exists message_postedBy_time_idx on message (postedBy, timePostedEpoch desc, messageId desc);
+create index if not exists message_time_idx on message (timePostedEpoch, messageId);
@@ -0,0 +1,101 @@
+package com.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.MessageListCache;
+import com.example.cache.MessageVersions;
+
+public class CachedMessageListTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<byte[]> getMessages(boolean gzip) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/messages"));
+        if(gzip){
+            request.header("Accept-Encoding", "gzip, deflate");
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages twice, the second time accepting gzip
+     *
+     * Expected Response:
+     *  The first response fills the list cache; the second is the same JSON, gzip-compressed, with its own ETag
+     */
+    @Test
+    public void repeatedListServedFromCacheAndGzipped() throws IOException, InterruptedException {
+        HttpResponse<byte[]> first = getMessages(false);
+        Assertions.assertEquals(200, first.statusCode());
+        String json = new String(first.body(), StandardCharsets.UTF_8);
+        String etag = app.getBean(MessageVersions.class).listTag();
+        Assertions.assertNotNull(app.getBean(MessageListCache.class).get(etag), "Expected the list to be cached");
+
+        HttpResponse<byte[]> second = getMessages(true);
+        Assertions.assertEquals(200, second.statusCode());
+        Assertions.assertEquals("gzip", second.headers().firstValue("Content-Encoding").orElse(null));
+        Assertions.assertNotEquals(etag, second.headers().firstValue("ETag").orElseThrow());
+        try(GZIPInputStream unzipped = new GZIPInputStream(new ByteArrayInputStream(second.body()))){
+            Assertions.assertEquals(json, new String(unzipped.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        HttpResponse<byte[]> third = getMessages(false);
+        Assertions.assertEquals(json, new String(third.body(), StandardCharsets.UTF_8));
+        Assertions.assertTrue(third.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages, posting a new message, then GET localhost:8080/messages again
+     *
+     * Expected Response:
+     *  The cached list is not served after the write; the new message is included
+     */
+    @Test
+    public void cachedListReplacedAfterWrite() throws IOException, InterruptedException {
+        getMessages(false);
+        getMessages(false);
+
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\":\"cache buster\",\"timePostedEpoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<byte[]> afterWrite = getMessages(false);
+        Assertions.assertTrue(new String(afterWrite.body(), StandardCharsets.UTF_8).contains("cache buster"));
+    }
+}
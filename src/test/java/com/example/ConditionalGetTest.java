@@ -0,0 +1,130 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class ConditionalGetTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if(ifNoneMatch != null){
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void patch(int messageId, String messageText) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"" + messageText + "\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/9999 again with the ETag of the first response, then
+     * updating the message and sending the old ETag once more
+     *
+     * Expected Response:
+     *  Status Code: 304 with an empty body while the message is unchanged, then 200 with the new text and a new ETag
+     */
+    @Test
+    public void getMessageByIdNotModifiedUntilUpdated() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages/9999", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> unchanged = get("/messages/9999", etag);
+        Assertions.assertEquals(304, unchanged.statusCode(), "Expected Status Code 304 - Actual Code was: " + unchanged.statusCode());
+        Assertions.assertEquals("", unchanged.body());
+
+        patch(9999, "changed text");
+        HttpResponse<String> changed = get("/messages/9999", etag);
+        Assertions.assertEquals(200, changed.statusCode(), "Expected Status Code 200 - Actual Code was: " + changed.statusCode());
+        Assertions.assertTrue(changed.body().contains("changed text"), "Expected the updated message, got " + changed.body());
+        Assertions.assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages again with the ETag of the first response, then
+     * posting a new message and sending the old ETag once more
+     *
+     * Expected Response:
+     *  Status Code: 304 while no message has changed, then 200 with the new message in the list
+     */
+    @Test
+    public void getAllMessagesNotModifiedUntilMessagePosted() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/messages", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, get("/messages", etag).statusCode());
+
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\":\"brand new message\",\"timePostedEpoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        Assertions.assertEquals(200, webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> changed = get("/messages", etag);
+        Assertions.assertEquals(200, changed.statusCode(), "Expected Status Code 200 - Actual Code was: " + changed.statusCode());
+        Assertions.assertTrue(changed.body().contains("brand new message"));
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages again with the ETag of the first response, then
+     * deleting one of the account's messages and sending the old ETag once more
+     *
+     * Expected Response:
+     *  Status Code: 304 while no message has changed, then 200 without the deleted message
+     */
+    @Test
+    public void getAccountMessagesNotModifiedUntilMessageDeleted() throws IOException, InterruptedException {
+        HttpResponse<String> first = get("/accounts/9999/messages", null);
+        Assertions.assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        Assertions.assertEquals(304, get("/accounts/9999/messages", etag).statusCode());
+
+        HttpRequest deleteRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .DELETE()
+                .build();
+        Assertions.assertEquals(200, webClient.send(deleteRequest, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpResponse<String> changed = get("/accounts/9999/messages", etag);
+        Assertions.assertEquals(200, changed.statusCode(), "Expected Status Code 200 - Actual Code was: " + changed.statusCode());
+        Assertions.assertEquals("[]", changed.body());
+    }
+}
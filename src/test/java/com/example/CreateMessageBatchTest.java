@@ -0,0 +1,154 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.cache.AccountIdSet;
+import com.example.dto.BatchMessageResult;
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CreateMessageBatchTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient and ObjectMapper
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with a JSON array holding a valid message,
+     * a message from a user that doesn't exist and a blank message
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: one result per message; only the first one is persisted
+     */
+    @Test
+    public void createMessageBatchJsonArray() throws IOException, InterruptedException {
+    	String json = "[{\"postedBy\":9999,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792},"
+    			+ "{\"postedBy\":5050,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792},"
+    			+ "{\"postedBy\":9999,\"messageText\": \"\",\"timePostedEpoch\": 1669947792}]";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<BatchMessageResult> results = objectMapper.readValue(response.body().toString(), new TypeReference<List<BatchMessageResult>>(){});
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(200, results.get(0).getStatus());
+        Assertions.assertEquals(400, results.get(1).getStatus());
+        Assertions.assertEquals(400, results.get(2).getStatus());
+
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + results.get(0).getMessageId()))
+                .build();
+        Message expectedResult = new Message(results.get(0).getMessageId(), 9999, "hello message", 1669947792L);
+        Message actualResult = objectMapper.readValue(webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString()).body(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with two NDJSON messages
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: two results, both persisted with distinct ids
+     */
+    @Test
+    public void createMessageBatchNdjson() throws IOException, InterruptedException {
+    	String ndjson = "{\"postedBy\":9999,\"messageText\": \"first\",\"timePostedEpoch\": 1669947792}\n"
+    			+ "{\"postedBy\":9998,\"messageText\": \"second\",\"timePostedEpoch\": 1669947793}\n";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson))
+                .header("Content-Type", "application/x-ndjson")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        List<BatchMessageResult> results = objectMapper.readValue(response.body().toString(), new TypeReference<List<BatchMessageResult>>(){});
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals(200, results.get(0).getStatus());
+        Assertions.assertEquals(200, results.get(1).getStatus());
+        Assertions.assertNotEquals(results.get(0).getMessageId(), results.get(1).getMessageId());
+    }
+
+    /**
+     * Sending an http request to POST localhost:8080/messages/batch with an empty array
+     * 
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void createMessageBatchEmpty() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString("[]"))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
+    }
+
+    /**
+     * Adding an account behind the application's back, then sending POST localhost:8080/messages/batch
+     * with a message for it
+     *
+     * Expected Response:
+     *  Status Code: 200, the message is persisted, and the account is in the in-memory set of accountIds
+     *  from then on
+     */
+    @Test
+    public void createMessageBatchRemembersConfirmedAccount() throws IOException, InterruptedException {
+        app.getBean(JdbcTemplate.class).update("insert into account (accountId, username, password) values (5051, 'added directly', 'password')");
+        AccountIdSet accountIds = app.getBean(AccountIdSet.class);
+        Assertions.assertFalse(accountIds.contains(5051));
+
+    	String json = "[{\"postedBy\":5051,\"messageText\": \"hello message\",\"timePostedEpoch\": 1669947792}]";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        List<BatchMessageResult> results = objectMapper.readValue(response.body(), new TypeReference<List<BatchMessageResult>>(){});
+        Assertions.assertEquals(200, results.get(0).getStatus());
+        Assertions.assertTrue(accountIds.contains(5051));
+    }
+}
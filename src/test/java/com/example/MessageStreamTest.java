@@ -0,0 +1,174 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.stream.MessageStreamHub;
+
+public class MessageStreamTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Reads "event:" and "data:" lines from the stream until the given number of events has arrived.
+     */
+    private List<String> readEvents(BufferedReader reader, int count) throws IOException {
+        List<String> events = new ArrayList<>();
+        String event = null;
+        String line;
+        while(events.size() < count && (line = reader.readLine()) != null){
+            if(line.startsWith("event:")){
+                event = line.substring("event:".length());
+            }
+            else if(line.startsWith("data:")){
+                events.add(event + " " + line.substring("data:".length()));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Opening GET localhost:8080/messages/stream, then creating, updating and deleting a message
+     *
+     * Expected Response:
+     *  Status Code: 200 with Content-Type text/event-stream
+     *  Events: created (the full message), updated (the new text), deleted (the messageId), in that order
+     */
+    @Test
+    public void streamPushesCommittedChanges() throws Exception {
+        HttpRequest streamRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream"))
+                .build();
+        HttpResponse<InputStream> stream = webClient.send(streamRequest, HttpResponse.BodyHandlers.ofInputStream());
+        Assertions.assertEquals(200, stream.statusCode());
+        Assertions.assertTrue(stream.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+        Assertions.assertEquals(1, app.getBean(MessageStreamHub.class).subscriberCount());
+
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\":\"streamed message\",\"timePostedEpoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        String created = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).body();
+        int messageId = Integer.parseInt(created.replaceAll(".*\"messageId\":(\\d+).*", "$1"));
+
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited message\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .DELETE()
+                .build();
+        webClient.send(deleteMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(stream.body(), StandardCharsets.UTF_8))){
+            List<String> events = CompletableFuture.supplyAsync(() -> {
+                try{
+                    return readEvents(reader, 3);
+                }
+                catch(IOException e){
+                    throw new RuntimeException(e);
+                }
+            }).get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(3, events.size(), "Expected 3 events, got " + events);
+            Assertions.assertTrue(events.get(0).startsWith("created "), events.get(0));
+            Assertions.assertTrue(events.get(0).contains("\"messageText\":\"streamed message\""), events.get(0));
+            Assertions.assertTrue(events.get(0).contains("\"postedBy\":9999"), events.get(0));
+            Assertions.assertTrue(events.get(1).startsWith("updated "), events.get(1));
+            Assertions.assertTrue(events.get(1).contains("\"messageText\":\"edited message\""), events.get(1));
+            Assertions.assertTrue(events.get(2).startsWith("deleted "), events.get(2));
+            Assertions.assertTrue(events.get(2).contains("\"messageId\":" + messageId), events.get(2));
+        }
+    }
+
+    /**
+     * Creating and updating a message, then opening GET localhost:8080/messages/stream with the
+     * Last-Event-ID of the first event, and again with an id the server never sent
+     *
+     * Expected Response:
+     *  The first stream starts with the missed "updated" event, the second with a "reset" event
+     */
+    @Test
+    public void reconnectingClientsGetWhatTheyMissed() throws Exception {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\":\"missed message\",\"timePostedEpoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        String created = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).body();
+        int messageId = Integer.parseInt(created.replaceAll(".*\"messageId\":(\\d+).*", "$1"));
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"missed edit\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        String replayed = firstEvent("1");
+        Assertions.assertTrue(replayed.startsWith("updated "), replayed);
+        Assertions.assertTrue(replayed.contains("\"messageText\":\"missed edit\""), replayed);
+        Assertions.assertTrue(firstEvent("999").startsWith("reset "));
+    }
+
+    /**
+     * Opens the stream with the given Last-Event-ID and returns the first event sent on it.
+     */
+    private String firstEvent(String lastEventId) throws Exception {
+        HttpRequest streamRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/stream"))
+                .header("Last-Event-ID", lastEventId)
+                .build();
+        HttpResponse<InputStream> stream = webClient.send(streamRequest, HttpResponse.BodyHandlers.ofInputStream());
+        Assertions.assertEquals(200, stream.statusCode());
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(stream.body(), StandardCharsets.UTF_8))){
+            return CompletableFuture.supplyAsync(() -> {
+                try{
+                    return readEvents(reader, 1).get(0);
+                }
+                catch(IOException e){
+                    throw new RuntimeException(e);
+                }
+            }).get(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class MetricsEndpointTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999 twice, then
+     * GET localhost:8080/actuator/prometheus
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: Prometheus text including endpoint and repository latency histograms, connection-pool
+     *  gauges, Hibernate statistics, JVM allocation, message cache and per-request query metrics
+     */
+    @Test
+    public void prometheusEndpointExposesMetrics() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+
+        HttpRequest metricsRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/actuator/prometheus"))
+                .build();
+        HttpResponse<String> response = webClient.send(metricsRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        String body = response.body();
+        Assertions.assertTrue(body.contains("http_server_requests_seconds_bucket{"), "Missing endpoint latency histogram");
+        Assertions.assertTrue(body.contains("uri=\"/messages/{messageId}\""), "Missing per-endpoint tag");
+        Assertions.assertTrue(body.contains("spring_data_repository_invocations_seconds_bucket{"), "Missing repository latency histogram");
+        Assertions.assertTrue(body.contains("repository=\"MessageRepository\""), "Missing per-repository tag");
+        Assertions.assertTrue(body.contains("hikaricp_connections_active"), "Missing connection-pool gauges");
+        Assertions.assertTrue(body.contains("hibernate_entities_loads"), "Missing Hibernate statistics");
+        Assertions.assertTrue(body.contains("jvm_gc_memory_allocated_bytes_total"), "Missing JVM allocation metric");
+        Assertions.assertTrue(body.contains("cache_gets_total{cache=\"messages\""), "Missing message cache metrics");
+        Assertions.assertTrue(body.contains("http_server_requests_queries_count{"), "Missing per-request query counts");
+    }
+}
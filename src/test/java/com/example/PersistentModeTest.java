@@ -0,0 +1,101 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class PersistentModeTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    @TempDir
+    Path dataDirectory;
+
+    /**
+     * Before every test, create a new webClient and ObjectMapper for interacting locally on the web.
+     * The app itself is started by the test, with the "prod" profile and a database file in a fresh directory.
+     */
+    @BeforeEach
+    public void setUp() {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	if(app != null){
+    	    SpringApplication.exit(app);
+    	}
+    }
+
+    private void start() throws InterruptedException {
+        String[] args = new String[] {"--spring.profiles.active=prod", "--app.h2.file=" + dataDirectory.resolve("socialmedia")};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    private void restart() throws InterruptedException {
+        SpringApplication.exit(app);
+        app = null;
+        start();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> getMessages() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .build();
+        return objectMapper.readValue(webClient.send(request, HttpResponse.BodyHandlers.ofString()).body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Starting with the "prod" profile on an empty directory, writing, and starting again on the same file
+     *
+     * Expected Response:
+     *  The first start creates the schema without the test data, and the second start keeps every row
+     *  and goes on handing out new ids
+     */
+    @Test
+    public void dataSurvivesRestart() throws IOException, InterruptedException {
+        start();
+        Assertions.assertEquals(List.of(), getMessages());
+        Assertions.assertTrue(Files.exists(dataDirectory.resolve("socialmedia.mv.db")));
+        HttpResponse<String> registered = post("/register", "{\"username\":\"persistent\",\"password\":\"password\"}");
+        Assertions.assertEquals(200, registered.statusCode());
+        int accountId = objectMapper.readTree(registered.body()).get("accountId").asInt();
+        Message first = objectMapper.readValue(post("/messages", "{\"postedBy\":" + accountId + ",\"messageText\":\"kept\",\"timePostedEpoch\":1}").body(), Message.class);
+
+        restart();
+        Assertions.assertEquals(List.of(first), getMessages());
+        Assertions.assertEquals(409, post("/register", "{\"username\":\"persistent\",\"password\":\"password\"}").statusCode());
+        Message second = objectMapper.readValue(post("/messages", "{\"postedBy\":" + accountId + ",\"messageText\":\"also kept\",\"timePostedEpoch\":2}").body(), Message.class);
+        Assertions.assertNotEquals(first.getMessageId(), second.getMessageId());
+        Assertions.assertEquals(List.of(first, second), getMessages());
+    }
+}
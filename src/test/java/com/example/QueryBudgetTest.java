@@ -0,0 +1,140 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.cache.AccountIdSet;
+import com.example.metrics.QueryBudgetMonitor;
+import com.example.metrics.QueryBudgetViolation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class QueryBudgetTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    private HttpRequest.Builder json(String path){
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .header("Content-Type", "application/json");
+    }
+
+    /**
+     * Sending one request to every endpoint that declares a @QueryBudget
+     *
+     * Expected Result:
+     *  No request goes over its budget; updating and deleting a message take exactly one statement each
+     */
+    @Test
+    public void endpointsStayWithinQueryBudgets() throws IOException, InterruptedException {
+        app.getBean(QueryBudgetMonitor.class).clear();
+
+        Assertions.assertEquals(200, send(json("/register").POST(HttpRequest.BodyPublishers.ofString(
+                "{\"username\":\"budget\",\"password\":\"password\"}")).build()));
+        Assertions.assertEquals(200, send(json("/login").POST(HttpRequest.BodyPublishers.ofString(
+                "{\"username\":\"testuser1\",\"password\":\"password\"}")).build()));
+        Assertions.assertEquals(200, send(json("/messages").POST(HttpRequest.BodyPublishers.ofString(
+                "{\"postedBy\":9999,\"messageText\":\"hello message\",\"timePostedEpoch\":1669947792}")).build()));
+        Assertions.assertEquals(200, send(json("/messages/9999").GET().build()));
+        Assertions.assertEquals(200, send(json("/messages?limit=10").GET().build()));
+        Assertions.assertEquals(200, send(json("/accounts/9999/messages").GET().build()));
+        Assertions.assertEquals(200, send(json("/messages/9999").method("PATCH", HttpRequest.BodyPublishers.ofString(
+                "{\"messageText\":\"updated message\"}")).build()));
+        Assertions.assertEquals(200, send(json("/messages/9999").DELETE().build()));
+
+        List<QueryBudgetViolation> violations = app.getBean(QueryBudgetMonitor.class).violations();
+        Assertions.assertTrue(violations.isEmpty(), "Query budgets exceeded: " + violations);
+
+        MeterRegistry registry = app.getBean(MeterRegistry.class);
+        DistributionSummary updates = registry.find("http.server.requests.queries")
+                .tags("method", "PATCH", "uri", "/messages/{messageId}").summary();
+        DistributionSummary deletes = registry.find("http.server.requests.queries")
+                .tags("method", "DELETE", "uri", "/messages/{messageId}").summary();
+        Assertions.assertEquals(1.0, updates.max(), "Expected a single UPDATE statement");
+        Assertions.assertEquals(1.0, deletes.max(), "Expected a single DELETE statement");
+    }
+
+    /**
+     * Reporting a request that issued more statements than its budget
+     *
+     * Expected Result:
+     *  The monitor records the violation
+     */
+    @Test
+    public void queryBudgetViolationIsRecorded() {
+        QueryBudgetMonitor monitor = app.getBean(QueryBudgetMonitor.class);
+        monitor.clear();
+        Assertions.assertTrue(monitor.check("SocialMediaController#deleteMessageById", 1, 1));
+        Assertions.assertFalse(monitor.check("SocialMediaController#deleteMessageById", 1, 3));
+        List<QueryBudgetViolation> violations = monitor.violations();
+        Assertions.assertEquals(1, violations.size());
+        Assertions.assertEquals(3, violations.get(0).getStatements());
+    }
+
+    /**
+     * Registering an account and posting two messages with it, then posting for an account that doesn't exist
+     *
+     * Expected Result:
+     *  The set of accountIds holds the test data and the new account, so the two posts issue only their
+     *  inserts (plus one sequence call), and the unknown account is still rejected
+     */
+    @Test
+    public void postedByIsCheckedInMemory() throws IOException, InterruptedException {
+        AccountIdSet accountIds = app.getBean(AccountIdSet.class);
+        Assertions.assertTrue(accountIds.contains(9999));
+        Assertions.assertTrue(accountIds.contains(9996));
+        HttpResponse<String> registered = webClient.send(json("/register").POST(HttpRequest.BodyPublishers.ofString(
+                "{\"username\":\"inmemory\",\"password\":\"password\"}")).build(), HttpResponse.BodyHandlers.ofString());
+        int accountId = new ObjectMapper().readTree(registered.body()).get("accountId").asInt();
+        Assertions.assertTrue(accountIds.contains(accountId));
+
+        for(int i = 0; i < 2; i++){
+            Assertions.assertEquals(200, send(json("/messages").POST(HttpRequest.BodyPublishers.ofString(
+                    "{\"postedBy\":" + accountId + ",\"messageText\":\"in memory\",\"timePostedEpoch\":1669947792}")).build()));
+        }
+        DistributionSummary posts = app.getBean(MeterRegistry.class).find("http.server.requests.queries")
+                .tags("method", "POST", "uri", "/messages").summary();
+        Assertions.assertEquals(2, posts.count());
+        Assertions.assertTrue(posts.totalAmount() <= 3, "Expected no account lookups, got " + posts.totalAmount() + " statements");
+
+        Assertions.assertFalse(accountIds.contains(12345));
+        Assertions.assertEquals(400, send(json("/messages").POST(HttpRequest.BodyPublishers.ofString(
+                "{\"postedBy\":12345,\"messageText\":\"nobody\",\"timePostedEpoch\":1669947792}")).build()));
+    }
+}
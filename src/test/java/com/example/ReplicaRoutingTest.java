@@ -0,0 +1,139 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ReplicaRoutingTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, create a new webClient and ObjectMapper for interacting locally on the web.
+     * The app is started with the "replica" profile, two replicas, and a replication lag long enough
+     * to observe.
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.profiles.active=replica", "--app.replica.lag=3s",
+                "--app.replica.urls=jdbc:h2:mem:replica1,jdbc:h2:mem:replica2"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> getTimeline(int accountId, Integer readerAccountId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/" + accountId + "/messages"));
+        if(readerAccountId != null){
+            request.header("X-Account-Id", readerAccountId.toString());
+        }
+        HttpResponse<String> response = webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Posting a message, then reading the poster's timeline as another reader, as the poster, and as
+     * another reader once the replicas have caught up
+     *
+     * Expected Response:
+     *  The replicas start out with the test data, the poster sees its message straight away, and
+     *  everyone else sees it once it has been replicated
+     */
+    @Test
+    public void readsFollowTheReplicasExceptForRecentWriters() throws IOException, InterruptedException {
+        Assertions.assertEquals(1, getTimeline(9999, null).size());
+        Message posted = objectMapper.readValue(post("/messages", "{\"postedBy\":9999,\"messageText\":\"replicated later\",\"timePostedEpoch\":1669947793}").body(), Message.class);
+
+        Assertions.assertFalse(getTimeline(9999, null).contains(posted));
+        Assertions.assertFalse(getTimeline(9999, 9998).contains(posted));
+        Assertions.assertTrue(getTimeline(9999, 9999).contains(posted));
+
+        Thread.sleep(4000);
+        Assertions.assertTrue(getTimeline(9999, null).contains(posted));
+    }
+
+    /**
+     * Registering and posting with the new account before the account has reached the replicas
+     *
+     * Expected Response:
+     *  The post is accepted, since write requests check the account against the primary
+     */
+    @Test
+    public void writesSeeThePrimary() throws IOException, InterruptedException {
+        HttpResponse<String> registered = post("/register", "{\"username\":\"replicated\",\"password\":\"password\"}");
+        Assertions.assertEquals(200, registered.statusCode());
+        int accountId = objectMapper.readTree(registered.body()).get("accountId").asInt();
+        HttpResponse<String> response = post("/messages", "{\"postedBy\":" + accountId + ",\"messageText\":\"first\",\"timePostedEpoch\":1}");
+        Assertions.assertEquals(200, response.statusCode());
+    }
+
+    private HttpResponse<String> get(String path, Integer readerAccountId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path));
+        if(readerAccountId != null){
+            request.header("X-Account-Id", readerAccountId.toString());
+        }
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Filling the message and message-list caches from a replica, updating the message as its
+     * poster, then reading both as the poster and as another reader
+     *
+     * Expected Response:
+     *  The poster sees the new text by id and in the list straight away, even though the caches
+     *  were filled from a replica before the change
+     */
+    @Test
+    public void recentWritersBypassCachesFilledFromReplicas() throws IOException, InterruptedException {
+        Assertions.assertTrue(get("/messages/9999", null).body().contains("\"messageText\":\"test message 1\""));
+        Assertions.assertTrue(get("/messages", null).body().contains("\"messageText\":\"test message 1\""));
+
+        HttpRequest patch = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited on the primary\"}"))
+                .header("Content-Type", "application/json")
+                .header("X-Account-Id", "9999")
+                .build();
+        Assertions.assertEquals("1", webClient.send(patch, HttpResponse.BodyHandlers.ofString()).body());
+
+        //Another reader refills the caches from a replica that hasn't seen the change yet
+        Assertions.assertTrue(get("/messages/9999", null).body().contains("\"messageText\":\"test message 1\""));
+        Assertions.assertTrue(get("/messages", null).body().contains("\"messageText\":\"test message 1\""));
+
+        Assertions.assertTrue(get("/messages/9999", 9999).body().contains("\"messageText\":\"edited on the primary\""));
+        Assertions.assertTrue(get("/messages", 9999).body().contains("\"messageText\":\"edited on the primary\""));
+    }
+}
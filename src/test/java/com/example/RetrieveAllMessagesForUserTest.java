@@ -83,4 +83,40 @@ public class RetrieveAllMessagesForUserTest {
         List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
         Assertions.assertTrue(actualResult.isEmpty(), "Expected Empty Result, but Result was not Empty");
     }
+
+    /**
+     * Sending http requests to GET localhost:8080/accounts/9999/messages?limit=1 after posting a newer message,
+     * then asking for the page before it.
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the newest message first, then the seeded message on the next page
+     */
+    @Test
+    public void getMessagesFromUserPaged() throws IOException, InterruptedException {
+        String json = "{\"postedBy\":9999,\"messageText\": \"newer message\",\"timePostedEpoch\": 1669947800}";
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        Message posted = objectMapper.readValue(webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).body(), Message.class);
+
+        HttpRequest firstPage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=1"))
+                .build();
+        HttpResponse<String> response = webClient.send(firstPage, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        List<Message> actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        Assertions.assertEquals(List.of(posted), actualResult, "Expected="+posted + ", Actual="+actualResult);
+
+        HttpRequest secondPage = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/accounts/9999/messages?limit=1&before=1669947800&beforeId=" + posted.getMessageId()))
+                .build();
+        response = webClient.send(secondPage, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        actualResult = objectMapper.readValue(response.body().toString(), new TypeReference<List<Message>>(){});
+        List<Message> expectedResult = List.of(new Message(9999, 9999, "test message 1", 1669947792L));
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
 }
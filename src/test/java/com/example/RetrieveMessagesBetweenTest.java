@@ -0,0 +1,133 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RetrieveMessagesBetweenTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+    Message early; //posted by 9999 at 1000
+    Message late; //posted by 9998 at 2000
+    Message lateToo; //posted by 9999 at 2000, after "late"
+
+    /**
+     * Before every test, reset the database, restart the Spring app, create a new webClient and ObjectMapper
+     * for interacting locally on the web, and post three messages well before the seeded ones.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws IOException, InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+        early = post(9999, "early message", 1000);
+        late = post(9998, "late message", 2000);
+        lateToo = post(9999, "another late message", 2000);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private Message post(int postedBy, String messageText, long timePostedEpoch) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(new Message(postedBy, messageText, timePostedEpoch))))
+                .header("Content-Type", "application/json")
+                .build();
+        return objectMapper.readValue(webClient.send(request, HttpResponse.BodyHandlers.ofString()).body(), Message.class);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private List<Message> getMessages(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = get(path);
+        Assertions.assertEquals(200, response.statusCode(), "Expected Status Code 200 - Actual Code was: " + response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Sending GET localhost:8080/messages?since=1000&until=2000 and ?since=1500&until=3000
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the messages posted in [since, until), oldest first, ties in messageId order
+     */
+    @Test
+    public void getMessagesInWindow() throws IOException, InterruptedException {
+        Assertions.assertEquals(List.of(early), getMessages("/messages?since=1000&until=2000"));
+        Assertions.assertEquals(List.of(late, lateToo), getMessages("/messages?since=1500&until=3000"));
+        Assertions.assertEquals(List.of(), getMessages("/messages?since=3000&until=4000"));
+    }
+
+    /**
+     * Paging through GET localhost:8080/messages?since=0&limit=2, continuing from the last message of each page
+     *
+     * Expected Response:
+     *  Every message exactly once, oldest first, including the seeded ones after the posted ones
+     */
+    @Test
+    public void pageThroughWindow() throws IOException, InterruptedException {
+        List<Message> firstPage = getMessages("/messages?since=0&limit=2");
+        Assertions.assertEquals(List.of(early, late), firstPage);
+        List<Message> secondPage = getMessages("/messages?since=2000&afterId=" + late.getMessageId() + "&limit=2");
+        Assertions.assertEquals(List.of(lateToo, new Message(9996, 9996, "test message 3", 1669947792L)), secondPage);
+        List<Message> lastPage = getMessages("/messages?since=1669947792&afterId=9996&limit=2");
+        Assertions.assertEquals(List.of(new Message(9997, 9997, "test message 2", 1669947792L),
+                new Message(9999, 9999, "test message 1", 1669947792L)), lastPage);
+    }
+
+    /**
+     * Sending GET localhost:8080/accounts/9999/messages with a time window
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only that user's messages in the window, newest first
+     */
+    @Test
+    public void getAccountMessagesInWindow() throws IOException, InterruptedException {
+        Assertions.assertEquals(List.of(lateToo, early), getMessages("/accounts/9999/messages?since=1000&until=3000"));
+        Assertions.assertEquals(List.of(lateToo), getMessages("/accounts/9999/messages?since=1000&until=3000&limit=1"));
+        Assertions.assertEquals(List.of(early), getMessages("/accounts/9999/messages?since=1000&until=3000&before=2000&beforeId=" + lateToo.getMessageId()));
+        Assertions.assertEquals(List.of(new Message(9999, 9999, "test message 1", 1669947792L)), getMessages("/accounts/9999/messages?since=3000"));
+        Assertions.assertEquals(List.of(early), getMessages("/accounts/9999/messages?until=2000"));
+    }
+
+    /**
+     * Sending a window that ends before it starts, or an invalid limit
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidWindow() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, get("/messages?since=2000&until=2000").statusCode());
+        Assertions.assertEquals(400, get("/messages?since=0&limit=0").statusCode());
+        Assertions.assertEquals(400, get("/accounts/9999/messages?since=2000&until=1000").statusCode());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+public class SearchMessagesTest {
+	ApplicationContext app;
+    HttpClient webClient;
+
+    /**
+     * Before every test, reset the database, restart the Spring app, and create a new webClient
+     * for interacting locally on the web.
+     * @throws InterruptedException
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        String[] args = new String[] {};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> search(String query) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/search?" + query))
+                .build();
+        return webClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String q(String text){
+        return "q=" + URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search for words of the seeded messages
+     *
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: only the messages containing every word, matched case-insensitively
+     *  X-Total-Count: the number of matches
+     */
+    @Test
+    public void searchMatchesEveryWord() throws IOException, InterruptedException {
+        HttpResponse<String> response = search(q("Message 2"));
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("[{\"messageId\":9997,\"postedBy\":9997,\"messageText\":\"test message 2\",\"timePostedEpoch\":1669947792}]",
+                response.body());
+        Assertions.assertEquals("1", response.headers().firstValue("X-Total-Count").orElse(null));
+
+        response = search(q("TEST") + "&limit=2");
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("3", response.headers().firstValue("X-Total-Count").orElse(null));
+        //Equal scores: newest messageId first
+        Assertions.assertTrue(response.body().startsWith("[{\"messageId\":9999,"), response.body());
+        Assertions.assertTrue(response.body().contains("\"messageId\":9997,"), response.body());
+        Assertions.assertFalse(response.body().contains("\"messageId\":9996,"), response.body());
+
+        response = search(q("test") + "&offset=2&limit=2");
+        Assertions.assertTrue(response.body().startsWith("[{\"messageId\":9996,"), response.body());
+
+        response = search(q("message nowhere"));
+        Assertions.assertEquals("[]", response.body());
+        Assertions.assertEquals("0", response.headers().firstValue("X-Total-Count").orElse(null));
+    }
+
+    /**
+     * Searching after creating, updating and deleting a message
+     *
+     * Expected Response:
+     *  Every change is reflected by the searches shortly after it (the index is updated in the
+     *  background), and the better match ranks first
+     */
+    @Test
+    public void searchFollowsChanges() throws IOException, InterruptedException {
+        HttpRequest postMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\":\"banana bread, banana split\",\"timePostedEpoch\":1669947792}"))
+                .header("Content-Type", "application/json")
+                .build();
+        String created = webClient.send(postMessageRequest, HttpResponse.BodyHandlers.ofString()).body();
+        int messageId = Integer.parseInt(created.replaceAll(".*\"messageId\":(\\d+).*", "$1"));
+
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9996"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"one banana, then lots of other words\"}"))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(500);
+
+        HttpResponse<String> response = search(q("banana"));
+        Assertions.assertEquals("2", response.headers().firstValue("X-Total-Count").orElse(null));
+        Assertions.assertTrue(response.body().startsWith("[{\"messageId\":" + messageId + ","), response.body());
+        Assertions.assertEquals("2", search(q("test")).headers().firstValue("X-Total-Count").orElse(null));
+
+        HttpRequest deleteMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/" + messageId))
+                .DELETE()
+                .build();
+        webClient.send(deleteMessageRequest, HttpResponse.BodyHandlers.ofString());
+        Thread.sleep(500);
+        response = search(q("bread"));
+        Assertions.assertEquals("[]", response.body());
+    }
+
+    /**
+     * Sending GET localhost:8080/messages/search with a blank query or an invalid limit
+     *
+     * Expected Response:
+     *  Status Code: 400
+     */
+    @Test
+    public void invalidSearch() throws IOException, InterruptedException {
+        Assertions.assertEquals(400, search(q(" ,. ")).statusCode());
+        Assertions.assertEquals(400, search(q("test") + "&limit=0").statusCode());
+        Assertions.assertEquals(400, search(q("test") + "&offset=-1").statusCode());
+    }
+}
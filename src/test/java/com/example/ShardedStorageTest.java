@@ -0,0 +1,182 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.entity.Message;
+import com.example.shard.MessageShards;
+import com.example.shard.ShardDataSources;
+import com.example.shard.ShardSetup;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class ShardedStorageTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, create a new webClient and ObjectMapper for interacting locally on the web.
+     * The app is started with the "sharded" profile and three shards.
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.profiles.active=sharded",
+                "--app.shards.urls=jdbc:h2:mem:shard0,jdbc:h2:mem:shard1,jdbc:h2:mem:shard2"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path){
+        return HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).header("Content-Type", "application/json");
+    }
+
+    private List<Message> getMessages(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = send(request(path));
+        Assertions.assertEquals(200, response.statusCode());
+        return objectMapper.readValue(response.body(), new TypeReference<List<Message>>(){});
+    }
+
+    private int count(JdbcTemplate jdbcTemplate, String sql, Object... args){
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    /**
+     * The test data, moved from the main database to the shards at startup
+     *
+     * Expected Response:
+     *  Every message is on the shard of its postedBy and none is left in the main database; all of them
+     *  are listed in messageId order, and each one is found by id and by its author
+     */
+    @Test
+    public void testDataIsSpreadOverTheShards() throws IOException, InterruptedException {
+        ShardDataSources dataSources = app.getBean(ShardDataSources.class);
+        MessageShards shards = app.getBean(MessageShards.class);
+        Assertions.assertEquals(0, count(new JdbcTemplate(dataSources.getMain()), "select count(*) from message"));
+        for(int postedBy : new int[] {9999, 9997, 9996}){
+            JdbcTemplate shard = new JdbcTemplate(dataSources.getShards().get(shards.shardOf(postedBy)));
+            Assertions.assertEquals(1, count(shard, "select count(*) from message where postedBy = ?", postedBy));
+        }
+
+        List<Message> all = getMessages("/messages");
+        Assertions.assertEquals(List.of(9996, 9997, 9999), all.stream().map(Message::getMessageId).toList());
+        Assertions.assertEquals(all.subList(1, 3), getMessages("/messages?after=9996&limit=5"));
+        Assertions.assertEquals(List.of(all.get(2)), getMessages("/accounts/9999/messages"));
+        HttpResponse<String> byId = send(request("/messages/9997"));
+        Assertions.assertEquals(all.get(1), objectMapper.readValue(byId.body(), Message.class));
+    }
+
+    /**
+     * Moving more messages than the test data, with ids where the sequences would start, then
+     * setting the shards up again (as an unsharded database switched to this profile is) and posting
+     *
+     * Expected Response:
+     *  Every message is moved, and the new messages get ids above all the moved ones, without a clash
+     */
+    @Test
+    public void postingAfterMovingMessagesDoesNotReuseIds() throws IOException, InterruptedException {
+        ShardDataSources dataSources = app.getBean(ShardDataSources.class);
+        JdbcTemplate main = new JdbcTemplate(dataSources.getMain());
+        List<Object[]> moved = new ArrayList<>();
+        for(int messageId = 1; messageId <= 300; messageId++){
+            moved.add(new Object[]{messageId, 9996 + messageId % 4, "moved " + messageId, (long) messageId});
+        }
+        main.batchUpdate("insert into message (messageId, postedBy, messageText, timePostedEpoch) values (?, ?, ?, ?)", moved);
+        new ShardSetup(dataSources, app.getBean(MessageShards.class));
+        Assertions.assertEquals(0, count(main, "select count(*) from message"));
+        Assertions.assertEquals(3 + 300, getMessages("/messages").size());
+
+        Set<Integer> ids = new HashSet<>();
+        for(int i = 0; i < 4; i++){
+            HttpResponse<String> registered = send(request("/register").POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"moved" + i + "\",\"password\":\"password\"}")));
+            Assertions.assertEquals(200, registered.statusCode());
+            int accountId = objectMapper.readTree(registered.body()).get("accountId").asInt();
+            for(int postedBy : new int[] {accountId, 9996 + i}){
+                String body = "{\"postedBy\":" + postedBy + ",\"messageText\":\"after the move\",\"timePostedEpoch\":1}";
+                HttpResponse<String> posted = send(request("/messages").POST(HttpRequest.BodyPublishers.ofString(body)));
+                Assertions.assertEquals(200, posted.statusCode());
+                int messageId = objectMapper.readValue(posted.body(), Message.class).getMessageId();
+                Assertions.assertTrue(messageId > 9999);
+                Assertions.assertTrue(ids.add(messageId));
+            }
+        }
+    }
+
+    /**
+     * Posting for several new accounts, then reading, updating and deleting across the shards
+     *
+     * Expected Response:
+     *  Every id is unique, every account's messages come from its own shard, and the global list, the
+     *  time window and by-id reads see the messages of every shard
+     */
+    @Test
+    public void writesAndReadsAcrossShards() throws IOException, InterruptedException {
+        List<Integer> accounts = new ArrayList<>();
+        for(int i = 0; i < 6; i++){
+            HttpResponse<String> registered = send(request("/register").POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"sharded" + i + "\",\"password\":\"password\"}")));
+            Assertions.assertEquals(200, registered.statusCode());
+            accounts.add(objectMapper.readTree(registered.body()).get("accountId").asInt());
+        }
+        Set<Integer> ids = new HashSet<>();
+        for(int i = 0; i < 3; i++){
+            for(int accountId : accounts){
+                String body = "{\"postedBy\":" + accountId + ",\"messageText\":\"message " + i + "\",\"timePostedEpoch\":" + (10 + i) + "}";
+                HttpResponse<String> posted = send(request("/messages").POST(HttpRequest.BodyPublishers.ofString(body)));
+                Assertions.assertEquals(200, posted.statusCode());
+                Assertions.assertTrue(ids.add(objectMapper.readValue(posted.body(), Message.class).getMessageId()));
+            }
+        }
+
+        ShardDataSources dataSources = app.getBean(ShardDataSources.class);
+        MessageShards shards = app.getBean(MessageShards.class);
+        Set<Integer> usedShards = new HashSet<>();
+        for(int accountId : accounts){
+            List<Message> timeline = getMessages("/accounts/" + accountId + "/messages");
+            Assertions.assertEquals(3, timeline.size());
+            int shard = shards.shardOf(accountId);
+            usedShards.add(shard);
+            Assertions.assertEquals(3, count(new JdbcTemplate(dataSources.getShards().get(shard)), "select count(*) from message where postedBy = ?", accountId));
+        }
+        Assertions.assertTrue(usedShards.size() > 1);
+
+        List<Message> window = getMessages("/messages?since=10&until=12&limit=100");
+        Assertions.assertEquals(12, window.size());
+        Assertions.assertEquals(10L, window.get(0).getTimePostedEpoch());
+        Assertions.assertEquals(11L, window.get(11).getTimePostedEpoch());
+        Assertions.assertEquals(3 + 18, getMessages("/messages").size());
+
+        int messageId = ids.iterator().next();
+        HttpResponse<String> updated = send(request("/messages/" + messageId).method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited\"}")));
+        Assertions.assertEquals("1", updated.body());
+        Assertions.assertEquals("edited", objectMapper.readValue(send(request("/messages/" + messageId)).body(), Message.class).getMessageText());
+        Assertions.assertEquals("1", send(request("/messages/" + messageId).DELETE()).body());
+        Assertions.assertEquals("", send(request("/messages/" + messageId)).body());
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
+import com.example.entity.Message;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class UpdateMessageTest {
@@ -123,4 +124,34 @@ public class UpdateMessageTest {
         int status = response.statusCode();
         Assertions.assertEquals(400, status, "Expected Status Code 400 - Actual Code was: " + status);
     }
+
+
+    /**
+     * Sending an http request to GET localhost:8080/messages/9999 (so the message gets cached), then PATCH it,
+     * then GET it again.
+     * 
+     * Expected Response:
+     *  Status Code: 200
+     *  Response Body: the message with its updated text, never the stale cached text
+     */
+    @Test
+    public void updateMessageVisibleAfterCachedRead() throws IOException, InterruptedException {
+        HttpRequest getMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .build();
+        webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+    	String json = "{\"messageText\": \"text changed\"}";
+        HttpRequest patchMessageRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/messages/9999"))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        webClient.send(patchMessageRequest, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> response = webClient.send(getMessageRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(200, status, "Expected Status Code 200 - Actual Code was: " + status);
+        Message expectedResult = new Message(9999, 9999, "text changed", 1669947792L);
+        Message actualResult = objectMapper.readValue(response.body().toString(), Message.class);
+        Assertions.assertEquals(expectedResult, actualResult, "Expected="+expectedResult + ", Actual="+actualResult);
+    }
 }
@@ -14,6 +14,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 
+import com.example.entity.Account;
+import com.example.repository.AccountRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class UserRegistrationTest {
@@ -83,4 +85,25 @@ public class UserRegistrationTest {
         Assertions.assertEquals(200, status1, "Expected Status Code 200 - Actual Code was: " + status1);
         Assertions.assertEquals(409, status2, "Expected Status Code 409 - Actual Code was: " + status2);
     }
+
+    /**
+     * Inserting an account straight through the AccountRepository (so the in-memory username index never saw it),
+     * then sending an http request to POST localhost:8080/register with the same username
+     * 
+     * Expected Response:
+     *  Status Code: 409
+     */
+    @Test
+    public void registerUserDuplicateUsernameNotInIndex() throws IOException, InterruptedException {
+        app.getBean(AccountRepository.class).save(new Account("sneaky", "password"));
+    	String json = "{\"username\":\"sneaky\",\"password\":\"password\"}";
+    	HttpRequest postRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/register"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .header("Content-Type", "application/json")
+                .build();
+        HttpResponse<String> response = webClient.send(postRequest, HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        Assertions.assertEquals(409, status, "Expected Status Code 409 - Actual Code was: " + status);
+    }
 }
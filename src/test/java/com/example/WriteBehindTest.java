@@ -0,0 +1,139 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+import com.example.entity.Message;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class WriteBehindTest {
+	ApplicationContext app;
+    HttpClient webClient;
+    ObjectMapper objectMapper;
+
+    /**
+     * Before every test, create a new webClient and ObjectMapper for interacting locally on the web.
+     * The app is started with the "write-behind" profile, a queue of four messages, and a flush
+     * interval long enough that nothing is written on its own during the test.
+     */
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        webClient = HttpClient.newHttpClient();
+        objectMapper = new ObjectMapper();
+        String[] args = new String[] {"--spring.profiles.active=write-behind", "--app.write-behind.capacity=4",
+                "--app.write-behind.flush-interval=30s"};
+        app = SpringApplication.run(SocialMediaApp.class, args);
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+    	Thread.sleep(500);
+    	SpringApplication.exit(app);
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return webClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path){
+        return HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).header("Content-Type", "application/json");
+    }
+
+    private HttpResponse<String> post(int i) throws IOException, InterruptedException {
+        String body = "{\"postedBy\":9999,\"messageText\":\"queued " + i + "\",\"timePostedEpoch\":1669947793}";
+        return send(request("/messages").POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private List<Message> getMessages() throws IOException, InterruptedException {
+        return objectMapper.readValue(send(request("/messages")).body(), new TypeReference<List<Message>>(){});
+    }
+
+    /**
+     * Posting until the queue is full, reading the queued messages, then updating one of them
+     *
+     * Expected Response:
+     *  The first four posts get their ids at once and can be read by id straight away, the fifth is
+     *  turned away with 503, the list only shows them once they are written, and the update makes
+     *  the queue flush so it can apply to the stored message
+     */
+    @Test
+    public void queuedMessagesAreReadableAndWrittenBeforeTheyChange() throws IOException, InterruptedException {
+        List<Message> posted = new ArrayList<>();
+        for(int i = 0; i < 4; i++){
+            HttpResponse<String> response = post(i);
+            Assertions.assertEquals(200, response.statusCode());
+            posted.add(objectMapper.readValue(response.body(), Message.class));
+        }
+        Assertions.assertEquals(4, new HashSet<>(posted.stream().map(Message::getMessageId).toList()).size());
+        for(Message message : posted){
+            Assertions.assertEquals(message, objectMapper.readValue(send(request("/messages/" + message.getMessageId())).body(), Message.class));
+        }
+        Assertions.assertEquals(503, post(4).statusCode());
+        Assertions.assertEquals(3, getMessages().size());
+
+        int messageId = posted.get(0).getMessageId();
+        HttpResponse<String> updated = send(request("/messages/" + messageId).method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited\"}")));
+        Assertions.assertEquals("1", updated.body());
+        Assertions.assertEquals("edited", objectMapper.readValue(send(request("/messages/" + messageId)).body(), Message.class).getMessageText());
+        Assertions.assertEquals(3 + 4, getMessages().size());
+        Assertions.assertEquals(200, post(5).statusCode());
+    }
+
+    /**
+     * Posting a message without a timePostedEpoch, then posting more after it
+     *
+     * Expected Response:
+     *  The message is stored without a time, and the writer carries on: the posts after it are
+     *  written as well
+     */
+    @Test
+    public void messagesWithoutATimeAreWritten() throws IOException, InterruptedException {
+        HttpResponse<String> response = send(request("/messages").POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":9999,\"messageText\":\"no time\"}")));
+        Assertions.assertEquals(200, response.statusCode());
+        int messageId = objectMapper.readValue(response.body(), Message.class).getMessageId();
+        int after = objectMapper.readValue(post(0).body(), Message.class).getMessageId();
+        HttpResponse<String> updated = send(request("/messages/" + after).method("PATCH", HttpRequest.BodyPublishers.ofString("{\"messageText\":\"edited\"}")));
+        Assertions.assertEquals("1", updated.body());
+        List<Message> messages = getMessages();
+        Assertions.assertEquals(3 + 2, messages.size());
+        Message stored = messages.stream().filter(message -> message.getMessageId() == messageId).findFirst().orElseThrow();
+        Assertions.assertEquals("no time", stored.getMessageText());
+        Assertions.assertNull(stored.getTimePostedEpoch());
+
+        int later = objectMapper.readValue(post(1).body(), Message.class).getMessageId();
+        Assertions.assertEquals("1", send(request("/messages/" + later).DELETE()).body());
+        Assertions.assertEquals(3 + 2, getMessages().size());
+    }
+
+    /**
+     * Posting for an account that doesn't exist, and deleting a queued message
+     *
+     * Expected Response:
+     *  The post is still checked up front (400), and the delete waits for the message to be written,
+     *  then removes it
+     */
+    @Test
+    public void validationAndDeletesStaySynchronous() throws IOException, InterruptedException {
+        HttpResponse<String> rejected = send(request("/messages").POST(HttpRequest.BodyPublishers.ofString("{\"postedBy\":1,\"messageText\":\"nobody\",\"timePostedEpoch\":1}")));
+        Assertions.assertEquals(400, rejected.statusCode());
+        int messageId = objectMapper.readValue(post(0).body(), Message.class).getMessageId();
+        Assertions.assertEquals("1", send(request("/messages/" + messageId).DELETE()).body());
+        Assertions.assertEquals("", send(request("/messages/" + messageId)).body());
+        Assertions.assertEquals(3, getMessages().size());
+    }
+}